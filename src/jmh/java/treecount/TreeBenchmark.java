@@ -0,0 +1,184 @@
+package treecount;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.AnimationID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures object ID classification over a mix of tree and non-tree IDs, similar to what a scene load spawns, and
+ * animation classification over the players of a busy woodcutting spot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark
+{
+	private static final int OBJECT_COUNT = 4096;
+
+	private final int[] objectIds = new int[OBJECT_COUNT];
+	private final int[] animations = new int[OBJECT_COUNT];
+	// Baseline for the byte table, the maps the trees were looked up in before
+	private Map<Integer, Tree> allTrees;
+	private Map<Integer, Tree> forestryTrees;
+
+	@Setup
+	public void setUp()
+	{
+		final Random random = new Random(0);
+		final Tree[] trees = Tree.values();
+		for (int i = 0; i < OBJECT_COUNT; i++)
+		{
+			// Roughly one in eight objects in a wooded scene is a tree
+			if (random.nextInt(8) == 0)
+			{
+				final int[] treeIds = trees[random.nextInt(trees.length)].getTreeIds();
+				objectIds[i] = treeIds[random.nextInt(treeIds.length)];
+			}
+			else
+			{
+				objectIds[i] = random.nextInt(60000);
+			}
+			// Players in a wooded scene are mostly woodcutting, the rest idle or doing something else
+			animations[i] = random.nextInt(2) == 0 ? AnimationID.WOODCUTTING_RUNE : random.nextInt(4) == 0 ? random.nextInt(12000) : AnimationID.IDLE;
+		}
+		final ImmutableMap.Builder<Integer, Tree> allTreesBuilder = new ImmutableMap.Builder<>();
+		final ImmutableMap.Builder<Integer, Tree> forestryTreesBuilder = new ImmutableMap.Builder<>();
+		for (Tree tree : trees)
+		{
+			for (int treeId : tree.getTreeIds())
+			{
+				allTreesBuilder.put(treeId, tree);
+				if (tree.isProvidesForestryBoost())
+				{
+					forestryTreesBuilder.put(treeId, tree);
+				}
+			}
+		}
+		allTrees = allTreesBuilder.build();
+		forestryTrees = forestryTreesBuilder.build();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OBJECT_COUNT)
+	public void findTree(Blackhole blackhole)
+	{
+		for (int objectId : objectIds)
+		{
+			blackhole.consume(Tree.findTree(objectId));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OBJECT_COUNT)
+	public void findForestryTree(Blackhole blackhole)
+	{
+		for (int objectId : objectIds)
+		{
+			blackhole.consume(Tree.findForestryTree(objectId));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OBJECT_COUNT)
+	public void findTreeImmutableMap(Blackhole blackhole)
+	{
+		for (int objectId : objectIds)
+		{
+			blackhole.consume(allTrees.get(objectId));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OBJECT_COUNT)
+	public void findForestryTreeImmutableMap(Blackhole blackhole)
+	{
+		for (int objectId : objectIds)
+		{
+			blackhole.consume(forestryTrees.get(objectId));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OBJECT_COUNT)
+	public void isWoodcuttingAnimation(Blackhole blackhole)
+	{
+		for (int animation : animations)
+		{
+			blackhole.consume(TreeCountPlugin.isWoodcuttingAnimation(animation));
+		}
+	}
+
+	/**
+	 * Baseline for {@link #isWoodcuttingAnimation(Blackhole)}, the switch statements the definitions replaced
+	 */
+	@Benchmark
+	@OperationsPerInvocation(OBJECT_COUNT)
+	public void isWoodcuttingAnimationSwitch(Blackhole blackhole)
+	{
+		for (int animation : animations)
+		{
+			blackhole.consume(isWoodcuttingWithRegularAxe(animation) || isWoodcuttingWithFellingAxe(animation));
+		}
+	}
+
+	private static boolean isWoodcuttingWithRegularAxe(int animation)
+	{
+		switch (animation)
+		{
+			case AnimationID.WOODCUTTING_BRONZE:
+			case AnimationID.WOODCUTTING_IRON:
+			case AnimationID.WOODCUTTING_STEEL:
+			case AnimationID.WOODCUTTING_BLACK:
+			case AnimationID.WOODCUTTING_MITHRIL:
+			case AnimationID.WOODCUTTING_ADAMANT:
+			case AnimationID.WOODCUTTING_RUNE:
+			case AnimationID.WOODCUTTING_GILDED:
+			case AnimationID.WOODCUTTING_DRAGON:
+			case AnimationID.WOODCUTTING_DRAGON_OR:
+			case AnimationID.WOODCUTTING_INFERNAL:
+			case AnimationID.WOODCUTTING_3A_AXE:
+			case AnimationID.WOODCUTTING_CRYSTAL:
+			case AnimationID.WOODCUTTING_TRAILBLAZER:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isWoodcuttingWithFellingAxe(int animation)
+	{
+		switch (animation)
+		{
+			case AnimationID.WOODCUTTING_2H_BRONZE:
+			case AnimationID.WOODCUTTING_2H_IRON:
+			case AnimationID.WOODCUTTING_2H_STEEL:
+			case AnimationID.WOODCUTTING_2H_BLACK:
+			case AnimationID.WOODCUTTING_2H_MITHRIL:
+			case AnimationID.WOODCUTTING_2H_ADAMANT:
+			case AnimationID.WOODCUTTING_2H_RUNE:
+			case AnimationID.WOODCUTTING_2H_DRAGON:
+			case AnimationID.WOODCUTTING_2H_CRYSTAL:
+			case AnimationID.WOODCUTTING_2H_3A:
+				return true;
+			default:
+				return false;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package treecount;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import net.runelite.api.AnimationID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the engine on its own, without the client proxies, using the same layout of yews and choppers as
+ * {@link TreeCountPluginBenchmark} so the two can be compared to see the cost of the plugin's client adapter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeCountEngineBenchmark
+{
+	private static final int BASE_X = 3136;
+	private static final int BASE_Y = 3392;
+	private static final int TREES_PER_ROW = 33;
+	private static final IntPredicate ANY_TREE = handle -> true;
+
+	@Param({"10", "100", "500", "2000"})
+	private int players;
+
+	private TreeCountEngine engine;
+	private int[] locations;
+	private int[] orientations;
+	private final int[] adjacentTrees = new int[4];
+
+	@Setup
+	public void setUp()
+	{
+		engine = new TreeCountEngine(TreeCountPlugin::isWoodcuttingAnimation);
+		engine.setSceneBase(BASE_X, BASE_Y);
+		locations = new int[players];
+		orientations = new int[players];
+		for (int i = 0; i < players; i++)
+		{
+			final int treeIndex = i / 4;
+			final int treeX = BASE_X + 3 * (treeIndex % TREES_PER_ROW) + 2;
+			final int treeY = BASE_Y + 3 * ((treeIndex / TREES_PER_ROW) % TREES_PER_ROW) + 2;
+			if (i % 4 == 0)
+			{
+				engine.treeSpawned(Tree.YEW_TREE.getTreeIds()[0], true, 0, treeX, treeY, treeX, treeY);
+			}
+
+			switch (i % 4)
+			{
+				case 0:
+					locations[i] = TreeCountEngine.packLocation(treeX, treeY - 1, 0);
+					orientations[i] = FakeClient.FACING_NORTH;
+					break;
+				case 1:
+					locations[i] = TreeCountEngine.packLocation(treeX, treeY + 1, 0);
+					orientations[i] = FakeClient.FACING_SOUTH;
+					break;
+				case 2:
+					locations[i] = TreeCountEngine.packLocation(treeX - 1, treeY, 0);
+					orientations[i] = FakeClient.FACING_EAST;
+					break;
+				default:
+					locations[i] = TreeCountEngine.packLocation(treeX + 1, treeY, 0);
+					orientations[i] = FakeClient.FACING_WEST;
+					break;
+			}
+			engine.playerSpawned(i, locations[i], orientations[i], AnimationID.IDLE);
+		}
+	}
+
+	@Benchmark
+	public void startThenStopChopping()
+	{
+		for (int slot = 0; slot < players; slot++)
+		{
+			engine.animationChanged(slot, AnimationID.WOODCUTTING_RUNE);
+		}
+		for (int slot = 0; slot < players; slot++)
+		{
+			engine.animationChanged(slot, AnimationID.IDLE);
+		}
+	}
+
+	@Benchmark
+	public void findFacingTree(Blackhole blackhole)
+	{
+		for (int i = 0; i < players; i++)
+		{
+			blackhole.consume(engine.findFacingTree(locations[i], orientations[i]));
+		}
+	}
+
+	@Benchmark
+	public void findAdjacentTrees(Blackhole blackhole)
+	{
+		for (int i = 0; i < players; i++)
+		{
+			blackhole.consume(engine.findAdjacentTrees(locations[i], false, adjacentTrees));
+		}
+	}
+
+	@Benchmark
+	public void findNearestTree(Blackhole blackhole)
+	{
+		for (int i = 0; i < players; i++)
+		{
+			blackhole.consume(engine.findNearestTree(locations[i], 20, ANY_TREE));
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package treecount;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.geometry.SimplePolygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the label placement math run for every counted tree on every frame
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeCountOverlayBenchmark
+{
+	private static final int HULL_COUNT = 64;
+	// Convex hulls of tree models on screen usually have a couple dozen points
+	private static final int HULL_POINTS = 24;
+
+	private final SimplePolygon[] hulls = new SimplePolygon[HULL_COUNT];
+
+	@Setup
+	public void setUp()
+	{
+		final Random random = new Random(0);
+		for (int i = 0; i < HULL_COUNT; i++)
+		{
+			final int centerX = 100 + random.nextInt(600);
+			final int centerY = 100 + random.nextInt(400);
+			final int radius = 20 + random.nextInt(60);
+			final int[] xs = new int[HULL_POINTS];
+			final int[] ys = new int[HULL_POINTS];
+			for (int j = 0; j < HULL_POINTS; j++)
+			{
+				final double angle = 2 * Math.PI * j / HULL_POINTS;
+				xs[j] = centerX + (int) (radius * Math.cos(angle));
+				ys[j] = centerY + (int) (radius * Math.sin(angle));
+			}
+			hulls[i] = new SimplePolygon(xs, ys, HULL_POINTS);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(HULL_COUNT)
+	public void centroidOfPolygon(Blackhole blackhole)
+	{
+		for (SimplePolygon hull : hulls)
+		{
+			blackhole.consume(TreeCountOverlay.centroidOfPolygon(hull));
+		}
+	}
+}
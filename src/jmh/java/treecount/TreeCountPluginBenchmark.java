@@ -0,0 +1,117 @@
+package treecount;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.AnimationID;
+import net.runelite.api.GameObject;
+import net.runelite.api.GameState;
+import net.runelite.api.Player;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.GameStateChanged;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the plugin's per-tick counting paths against a scene of yews surrounded by choppers.
+ * Each benchmark operation covers every chopper in the scene, so divide by the player count for a per-player cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeCountPluginBenchmark
+{
+	@Param({"10", "100", "500", "2000"})
+	private int players;
+
+	private TreeCountPlugin plugin;
+	private Player[] choppers;
+	private GameObject[] trees;
+	private final int[] adjacentTrees = new int[4];
+	private final AnimationChanged animationChanged = new AnimationChanged();
+	private final GameStateChanged loading = new GameStateChanged();
+
+	@Setup
+	public void setUp() throws ReflectiveOperationException
+	{
+		final FakeClient client = new FakeClient();
+		final List<FakeGameObject> fakeTrees = client.populateChoppers(Tree.YEW_TREE.getTreeIds()[0], players, AnimationID.WOODCUTTING_RUNE);
+
+		plugin = client.createPlugin(FakeClient.defaultConfig());
+		trees = new GameObject[fakeTrees.size()];
+		for (int i = 0; i < trees.length; i++)
+		{
+			trees[i] = fakeTrees.get(i).getProxy();
+			FakeClient.spawn(plugin, trees[i]);
+		}
+
+		choppers = new Player[players];
+		for (int i = 0; i < players; i++)
+		{
+			choppers[i] = client.cachedPlayers[i];
+		}
+
+		// Finish the first run so that every chopper is assigned to their tree
+		FakeClient.tick(plugin);
+		loading.setGameState(GameState.LOADING);
+	}
+
+	@Benchmark
+	public void resolveChoppers()
+	{
+		// Every chopper fires an event, so the tick resolves all of them once
+		for (Player chopper : choppers)
+		{
+			animationChanged.setActor(chopper);
+			plugin.onAnimationChanged(animationChanged);
+		}
+		FakeClient.tick(plugin);
+	}
+
+	@Benchmark
+	public void loadScene()
+	{
+		// The first tick after loading scans the scene for trees and resolves every player
+		plugin.onGameStateChanged(loading);
+		FakeClient.tick(plugin);
+	}
+
+	@Benchmark
+	public void findClosestFacingTree(Blackhole blackhole)
+	{
+		for (Player chopper : choppers)
+		{
+			blackhole.consume(plugin.findClosestFacingTree(chopper));
+		}
+	}
+
+	@Benchmark
+	public void getAdjacentTrees(Blackhole blackhole)
+	{
+		for (Player chopper : choppers)
+		{
+			blackhole.consume(plugin.getAdjacentTrees(chopper, false, adjacentTrees));
+		}
+	}
+
+	@Benchmark
+	public void getPoints(Blackhole blackhole)
+	{
+		for (GameObject tree : trees)
+		{
+			blackhole.consume(plugin.getPoints(tree));
+		}
+	}
+}
@@ -0,0 +1,319 @@
+package treecount;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.inject.Singleton;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+/**
+ * Shares the forestry tree counts of every client running on this machine through a memory-mapped file, so each of them
+ * can show what the others see on their worlds.
+ * <p>
+ * The file holds a fixed number of slots. A client claims a free or abandoned slot by swapping its owner ID in, then
+ * publishes its counts there once per tick. Each slot is guarded by a sequence number that is odd while its owner is
+ * writing, so readers retry instead of locking when they catch a slot mid-update.
+ */
+@Slf4j
+@Singleton
+class ChopperCountExchange
+{
+	static final int MAGIC = 0x54434558;
+	static final int VERSION = 1;
+	static final int SLOTS = 16;
+	static final int MAX_ENTRIES = 64;
+	// Slots whose owner has not published for this long are ignored and may be claimed by another client
+	static final long STALE_MILLIS = 5000;
+
+	// int magic, int version, int slots, int slot size
+	private static final int HEADER_SIZE = 16;
+	// long sequence, long owner, long heartbeat epoch millis, int world, int tick, int entry count, int unused
+	private static final int SEQUENCE_OFFSET = 0;
+	private static final int OWNER_OFFSET = 8;
+	private static final int HEARTBEAT_OFFSET = 16;
+	private static final int WORLD_OFFSET = 24;
+	private static final int TICK_OFFSET = 28;
+	private static final int ENTRY_COUNT_OFFSET = 32;
+	private static final int ENTRIES_OFFSET = 40;
+	// int packed tree location, int tree object ID, int count
+	private static final int ENTRY_SIZE = 12;
+	static final int SLOT_SIZE = ENTRIES_OFFSET + MAX_ENTRIES * ENTRY_SIZE;
+	// Attempts at reading a slot that keeps changing underneath before skipping it for this tick
+	private static final int READ_ATTEMPTS = 3;
+
+	static final File EXCHANGE_FILE = new File(new File(RuneLite.RUNELITE_DIR, "tree-count"), "exchange.bin");
+
+	// Atomic access to the longs of the mapped file, which is shared with the other clients' processes
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	private final long ownerId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+	private volatile MappedByteBuffer buffer;
+	private int slot = -1;
+	// Handles of the trees being published, reused every tick
+	private final int[] publishedTrees = new int[MAX_ENTRIES];
+
+	// Summary of each other client's slot as of the last read, indexed up to peerCount
+	@Getter
+	private int peerCount;
+	private final int[] peerWorlds = new int[SLOTS];
+	private final int[] peerChoppers = new int[SLOTS];
+	private final int[] peerBestObjectIds = new int[SLOTS];
+	private final int[] peerBestCounts = new int[SLOTS];
+	private final int[] peerBestLocations = new int[SLOTS];
+
+	boolean isRunning()
+	{
+		return buffer != null;
+	}
+
+	void start()
+	{
+		start(EXCHANGE_FILE);
+	}
+
+	void start(File file)
+	{
+		if (buffer != null)
+		{
+			return;
+		}
+
+		file.getParentFile().mkdirs();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize());
+			if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || mapped.getInt(8) != SLOTS || mapped.getInt(12) != SLOT_SIZE)
+			{
+				// New or incompatible file, any slots in it are meaningless with this layout
+				for (int offset = HEADER_SIZE; offset < fileSize(); offset += 8)
+				{
+					mapped.putLong(offset, 0);
+				}
+				mapped.putInt(4, VERSION);
+				mapped.putInt(8, SLOTS);
+				mapped.putInt(12, SLOT_SIZE);
+				mapped.putInt(0, MAGIC);
+			}
+			slot = -1;
+			peerCount = 0;
+			buffer = mapped;
+			log.debug("Exchanging chopper counts through {}", file);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to open chopper count exchange {}", file, e);
+		}
+	}
+
+	/**
+	 * Releases this client's slot so that others stop showing it right away
+	 */
+	void stop()
+	{
+		final MappedByteBuffer mapped = buffer;
+		if (mapped == null)
+		{
+			return;
+		}
+
+		buffer = null;
+		if (slot != -1)
+		{
+			LONGS.compareAndSet(mapped, slotOffset(slot) + OWNER_OFFSET, ownerId, 0L);
+			slot = -1;
+		}
+		peerCount = 0;
+	}
+
+	/**
+	 * Writes the count of every counted forestry tree to this client's slot, claiming one first if needed. At most
+	 * {@link #MAX_ENTRIES} trees are shared, the busiest first, read from the engine's ranking so that only the counted
+	 * trees are visited
+	 */
+	void publish(TreeCountEngine engine, long time, int tick, int world)
+	{
+		final MappedByteBuffer mapped = buffer;
+		if (mapped == null || !claimSlot(mapped, time))
+		{
+			return;
+		}
+
+		final int offset = slotOffset(slot);
+		final long sequence = (long) LONGS.getVolatile(mapped, offset + SEQUENCE_OFFSET);
+		LONGS.setVolatile(mapped, offset + SEQUENCE_OFFSET, sequence + 1);
+		// A volatile write only orders the accesses before it, so keep the plain writes below from moving ahead of it
+		VarHandle.storeStoreFence();
+
+		final int entries = engine.getTopTrees(publishedTrees);
+		for (int entry = 0; entry < entries; entry++)
+		{
+			final int handle = publishedTrees[entry];
+			final int entryOffset = offset + ENTRIES_OFFSET + entry * ENTRY_SIZE;
+			mapped.putInt(entryOffset, engine.getTreeLocation(handle));
+			mapped.putInt(entryOffset + 4, engine.getTreeObjectId(handle));
+			mapped.putInt(entryOffset + 8, engine.getCount(handle));
+		}
+		mapped.putLong(offset + HEARTBEAT_OFFSET, time);
+		mapped.putInt(offset + WORLD_OFFSET, world);
+		mapped.putInt(offset + TICK_OFFSET, tick);
+		mapped.putInt(offset + ENTRY_COUNT_OFFSET, entries);
+
+		LONGS.setVolatile(mapped, offset + SEQUENCE_OFFSET, sequence + 2);
+	}
+
+	/**
+	 * Reads the slots of the other clients that published recently, summarising each into its world, total choppers
+	 * and busiest tree
+	 */
+	void readPeers(long time)
+	{
+		final MappedByteBuffer mapped = buffer;
+		peerCount = 0;
+		if (mapped == null)
+		{
+			return;
+		}
+
+		for (int other = 0; other < SLOTS; other++)
+		{
+			if (other == slot)
+			{
+				continue;
+			}
+
+			final int offset = slotOffset(other);
+			for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++)
+			{
+				final long sequence = (long) LONGS.getVolatile(mapped, offset + SEQUENCE_OFFSET);
+				if ((sequence & 1) != 0)
+				{
+					continue;
+				}
+
+				final long owner = mapped.getLong(offset + OWNER_OFFSET);
+				final long heartbeat = mapped.getLong(offset + HEARTBEAT_OFFSET);
+				final int world = mapped.getInt(offset + WORLD_OFFSET);
+				final int entries = Math.min(mapped.getInt(offset + ENTRY_COUNT_OFFSET), MAX_ENTRIES);
+				int choppers = 0;
+				int bestObjectId = 0;
+				int bestCount = 0;
+				int bestLocation = 0;
+				for (int entry = 0; entry < entries; entry++)
+				{
+					final int entryOffset = offset + ENTRIES_OFFSET + entry * ENTRY_SIZE;
+					final int count = mapped.getInt(entryOffset + 8);
+					choppers += count;
+					if (count > bestCount)
+					{
+						bestCount = count;
+						bestObjectId = mapped.getInt(entryOffset + 4);
+						bestLocation = mapped.getInt(entryOffset);
+					}
+				}
+
+				// Make sure everything above was read before checking that the owner did not write in the meantime
+				VarHandle.loadLoadFence();
+				if ((long) LONGS.getVolatile(mapped, offset + SEQUENCE_OFFSET) != sequence)
+				{
+					continue;
+				}
+
+				if (owner != 0 && owner != ownerId && time - heartbeat <= STALE_MILLIS)
+				{
+					peerWorlds[peerCount] = world;
+					peerChoppers[peerCount] = choppers;
+					peerBestObjectIds[peerCount] = bestObjectId;
+					peerBestCounts[peerCount] = bestCount;
+					peerBestLocations[peerCount] = bestLocation;
+					peerCount++;
+				}
+				break;
+			}
+		}
+	}
+
+	int getPeerWorld(int peer)
+	{
+		return peerWorlds[peer];
+	}
+
+	/**
+	 * @return the sum of the counts of every tree the peer shared
+	 */
+	int getPeerChoppers(int peer)
+	{
+		return peerChoppers[peer];
+	}
+
+	/**
+	 * @return object ID of the peer's busiest tree, or 0 if none of its trees are being chopped
+	 */
+	int getPeerBestObjectId(int peer)
+	{
+		return peerBestObjectIds[peer];
+	}
+
+	int getPeerBestCount(int peer)
+	{
+		return peerBestCounts[peer];
+	}
+
+	/**
+	 * @return packed location of the peer's busiest tree, see {@link TreeCountEngine#packLocation(int, int, int)}
+	 */
+	int getPeerBestLocation(int peer)
+	{
+		return peerBestLocations[peer];
+	}
+
+	static long fileSize()
+	{
+		return HEADER_SIZE + (long) SLOTS * SLOT_SIZE;
+	}
+
+	/**
+	 * Makes sure this client owns a slot, keeping the one it has unless another client took it over after it went stale
+	 *
+	 * @return false if every slot is owned by an active client
+	 */
+	private boolean claimSlot(MappedByteBuffer mapped, long time)
+	{
+		if (slot != -1 && (long) LONGS.getVolatile(mapped, slotOffset(slot) + OWNER_OFFSET) == ownerId)
+		{
+			return true;
+		}
+
+		slot = -1;
+		for (int candidate = 0; candidate < SLOTS; candidate++)
+		{
+			final int offset = slotOffset(candidate);
+			final long owner = (long) LONGS.getVolatile(mapped, offset + OWNER_OFFSET);
+			final long heartbeat = mapped.getLong(offset + HEARTBEAT_OFFSET);
+			if ((owner == 0 || time - heartbeat > STALE_MILLIS) && LONGS.compareAndSet(mapped, offset + OWNER_OFFSET, owner, ownerId))
+			{
+				// A previous owner may have died mid-write, leaving the sequence odd
+				final long sequence = (long) LONGS.getVolatile(mapped, offset + SEQUENCE_OFFSET);
+				if ((sequence & 1) != 0)
+				{
+					LONGS.setVolatile(mapped, offset + SEQUENCE_OFFSET, sequence + 1);
+				}
+				slot = candidate;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int slotOffset(int slot)
+	{
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+}
@@ -0,0 +1,247 @@
+package treecount;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+/**
+ * Keeps a history of the chopper count of every forestry tree in a memory-mapped ring buffer file, so that it can be
+ * looked back on which spots fill up at which times. A record is written whenever a tree's count changes, and once the
+ * file is full the oldest records are overwritten, so it never grows past {@link #fileSize(int)}.
+ * <p>
+ * Writing only puts values into the mapped buffer, which the operating system flushes to disk in the background, so
+ * recording does not allocate or block on I/O on the client thread. Each record starts with its own sequence number,
+ * written after the rest of the record, so that a reader can tell a record apart from one being overwritten as the
+ * writer wraps around.
+ */
+@Slf4j
+class ChopperCountHistory
+{
+	static final int MAGIC = 0x54434853;
+	static final int VERSION = 2;
+	static final int DEFAULT_CAPACITY = 1 << 18;
+
+	// int magic, int version, int capacity, int record size, long records written
+	private static final int HEADER_SIZE = 24;
+	private static final int WRITTEN_OFFSET = 16;
+	// long sequence, long epoch millis, int tick, int packed tree location, int tree object ID, short world, short count
+	static final int RECORD_SIZE = 32;
+	// Sequence of a record that is being written, any other sequence is the index of the record in the history
+	private static final long WRITING = -1;
+
+	static final File HISTORY_FILE = new File(new File(RuneLite.RUNELITE_DIR, "tree-count"), "history.bin");
+
+	// Ordered access to the sequences and the written counter, which are read by other threads and processes
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	private volatile MappedByteBuffer buffer;
+	private int capacity;
+	private long written;
+	// Last count recorded for each tree handle, so only changes are written
+	private int[] recordedCounts = new int[256];
+
+	boolean isRecording()
+	{
+		return buffer != null;
+	}
+
+	void start()
+	{
+		start(HISTORY_FILE, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Maps the history file, continuing after the records already in it if it was written with the same capacity and
+	 * starting over otherwise
+	 */
+	void start(File file, int capacity)
+	{
+		if (buffer != null)
+		{
+			return;
+		}
+
+		file.getParentFile().mkdirs();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+			if (mapped.getInt(0) == MAGIC && mapped.getInt(4) == VERSION && mapped.getInt(8) == capacity && mapped.getInt(12) == RECORD_SIZE)
+			{
+				written = mapped.getLong(WRITTEN_OFFSET);
+			}
+			else
+			{
+				mapped.putInt(0, MAGIC);
+				mapped.putInt(4, VERSION);
+				mapped.putInt(8, capacity);
+				mapped.putInt(12, RECORD_SIZE);
+				written = 0;
+				mapped.putLong(WRITTEN_OFFSET, written);
+			}
+			this.capacity = capacity;
+			Arrays.fill(recordedCounts, 0);
+			buffer = mapped;
+			log.debug("Recording chopper count history to {}", file);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to open chopper count history {}", file, e);
+		}
+	}
+
+	/**
+	 * Stops recording, flushing the records to disk on the given executor so that the client thread does not wait on it
+	 */
+	void stop(Executor executor)
+	{
+		final MappedByteBuffer mapped = buffer;
+		if (mapped == null)
+		{
+			return;
+		}
+
+		buffer = null;
+		executor.execute(mapped::force);
+	}
+
+	/**
+	 * Writes a record for every forestry tree whose count changed since the last call. Trees that are gone are
+	 * forgotten without a record, so a handle reused by a new tree starts again from zero
+	 */
+	void record(TreeCountEngine engine, long time, int tick, int world)
+	{
+		final MappedByteBuffer mapped = buffer;
+		if (mapped == null)
+		{
+			return;
+		}
+
+		final int treeCapacity = engine.getTreeCapacity();
+		if (treeCapacity > recordedCounts.length)
+		{
+			recordedCounts = Arrays.copyOf(recordedCounts, Math.max(treeCapacity, recordedCounts.length * 2));
+		}
+
+		final long start = written;
+		for (int handle = 0; handle < treeCapacity; handle++)
+		{
+			if (!engine.isTree(handle) || !engine.isForestryTree(handle))
+			{
+				recordedCounts[handle] = 0;
+				continue;
+			}
+
+			final int count = engine.getCount(handle);
+			if (count == recordedCounts[handle])
+			{
+				continue;
+			}
+
+			recordedCounts[handle] = count;
+			final int offset = HEADER_SIZE + (int) (written % capacity) * RECORD_SIZE;
+			LONGS.setVolatile(mapped, offset, WRITING);
+			// A volatile write only orders the accesses before it, so keep the plain writes below from moving ahead of it
+			VarHandle.storeStoreFence();
+			mapped.putLong(offset + 8, time);
+			mapped.putInt(offset + 16, tick);
+			mapped.putInt(offset + 20, engine.getTreeLocation(handle));
+			mapped.putInt(offset + 24, engine.getTreeObjectId(handle));
+			mapped.putShort(offset + 28, (short) world);
+			mapped.putShort(offset + 30, (short) Math.min(count, Short.MAX_VALUE));
+			LONGS.setRelease(mapped, offset, written);
+			written++;
+		}
+
+		if (written != start)
+		{
+			// Publish the batch only once all of its records are in place
+			LONGS.setRelease(mapped, WRITTEN_OFFSET, written);
+		}
+	}
+
+	static long fileSize(int capacity)
+	{
+		return HEADER_SIZE + (long) capacity * RECORD_SIZE;
+	}
+
+	/**
+	 * Reads the records of a history file, oldest first. Meant to be used off the client thread. Records that the
+	 * writer overwrites while they are being read are skipped
+	 */
+	static List<Sample> read(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (channel.size() < HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || mapped.getInt(12) != RECORD_SIZE)
+			{
+				throw new IOException("Not a chopper count history");
+			}
+
+			final int capacity = mapped.getInt(8);
+			final long written = (long) LONGS.getAcquire(mapped, WRITTEN_OFFSET);
+			final int count = (int) Math.min(written, capacity);
+			final List<Sample> samples = new ArrayList<>(count);
+			for (long i = written - count; i < written; i++)
+			{
+				final int offset = HEADER_SIZE + (int) (i % capacity) * RECORD_SIZE;
+				if ((long) LONGS.getAcquire(mapped, offset) != i)
+				{
+					continue;
+				}
+
+				final int location = mapped.getInt(offset + 20);
+				final Sample sample = new Sample(
+					mapped.getLong(offset + 8),
+					mapped.getInt(offset + 16),
+					TreeCountEngine.locationX(location),
+					TreeCountEngine.locationY(location),
+					TreeCountEngine.locationPlane(location),
+					mapped.getInt(offset + 24),
+					mapped.getShort(offset + 28),
+					mapped.getShort(offset + 30));
+
+				// Make sure the record was read before checking that the writer did not start overwriting it meanwhile
+				VarHandle.loadLoadFence();
+				if ((long) LONGS.getVolatile(mapped, offset) == i)
+				{
+					samples.add(sample);
+				}
+			}
+			return samples;
+		}
+	}
+
+	/**
+	 * A tree's chopper count as of a game tick
+	 */
+	@Value
+	static class Sample
+	{
+		long time;
+		int tick;
+		int worldX;
+		int worldY;
+		int plane;
+		int objectId;
+		int world;
+		int count;
+
+		Tree getTree()
+		{
+			return Tree.findTree(objectId);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package treecount;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import net.runelite.client.util.ColorUtil;
+
+/**
+ * Colors, strokes and pre-rendered count labels used by the overlay. They only depend on the chopper count, the config
+ * and the overlay's font, so they are computed once and looked up per tree, keeping steady-state rendering free of
+ * allocations.
+ */
+class ChopperCountStyle
+{
+	// The dynamic color is fully green, and the outline thick, from this many choppers on
+	static final int BUSY_CHOPPERS = 10;
+	// Counts up to this are drawn from pre-rendered sprites, anything higher is drawn as text
+	static final int MAX_SPRITE_COUNT = 99;
+
+	private static final Stroke THIN_STROKE = new BasicStroke(1f);
+	private static final Stroke THICK_STROKE = new BasicStroke(2f);
+
+	private final Color[] textColors = new Color[BUSY_CHOPPERS + 1];
+	private final Color[] outlineColors = new Color[BUSY_CHOPPERS + 1];
+	private final BufferedImage[] sprites = new BufferedImage[MAX_SPRITE_COUNT + 1];
+	private Font spriteFont;
+	private int spriteAscent;
+	private int spriteTextHeight;
+
+	/**
+	 * Recomputes the colors for the given config, discarding sprites drawn with the previous colors
+	 */
+	void update(boolean dynamicColors, Color textColor)
+	{
+		for (int choppers = 0; choppers <= BUSY_CHOPPERS; choppers++)
+		{
+			final Color color = dynamicColors ? getDynamicColor(choppers) : textColor;
+			textColors[choppers] = color;
+			outlineColors[choppers] = ColorUtil.colorWithAlpha(color, choppers < BUSY_CHOPPERS ? 0x50 : 0xB0);
+		}
+		Arrays.fill(sprites, null);
+	}
+
+	Color getTextColor(int choppers)
+	{
+		return textColors[index(choppers)];
+	}
+
+	Color getOutlineColor(int choppers)
+	{
+		return outlineColors[index(choppers)];
+	}
+
+	Stroke getOutlineStroke(int choppers)
+	{
+		return choppers < BUSY_CHOPPERS ? THIN_STROKE : THICK_STROKE;
+	}
+
+	/**
+	 * Draws the count centered on the given canvas point, with the same shadow as
+	 * {@link net.runelite.client.ui.overlay.OverlayUtil#renderTextLocation}
+	 *
+	 * @return false if the count has no sprite and has to be drawn as text instead
+	 */
+	boolean drawCount(Graphics2D graphics, int x, int y, int choppers)
+	{
+		if (choppers < 0 || choppers > MAX_SPRITE_COUNT)
+		{
+			return false;
+		}
+
+		if (graphics.getFont() != spriteFont)
+		{
+			spriteFont = graphics.getFont();
+			final FontMetrics metrics = graphics.getFontMetrics(spriteFont);
+			spriteAscent = metrics.getAscent();
+			spriteTextHeight = metrics.getAscent() + metrics.getDescent();
+			Arrays.fill(sprites, null);
+		}
+
+		BufferedImage sprite = sprites[choppers];
+		if (sprite == null)
+		{
+			sprite = createSprite(graphics, choppers);
+			sprites[choppers] = sprite;
+		}
+
+		// The sprite is one pixel larger than the text on each axis to fit the shadow
+		graphics.drawImage(sprite, x - (sprite.getWidth() - 1) / 2, y + spriteTextHeight / 2 - spriteAscent, null);
+		return true;
+	}
+
+	private BufferedImage createSprite(Graphics2D graphics, int choppers)
+	{
+		final String text = String.valueOf(choppers);
+		final FontMetrics metrics = graphics.getFontMetrics(spriteFont);
+		final BufferedImage sprite = new BufferedImage(Math.max(1, metrics.stringWidth(text)) + 1, spriteTextHeight + 1, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D spriteGraphics = sprite.createGraphics();
+		spriteGraphics.setRenderingHints(graphics.getRenderingHints());
+		spriteGraphics.setFont(spriteFont);
+		spriteGraphics.setColor(Color.BLACK);
+		spriteGraphics.drawString(text, 1, spriteAscent + 1);
+		spriteGraphics.setColor(getTextColor(choppers));
+		spriteGraphics.drawString(text, 0, spriteAscent);
+		spriteGraphics.dispose();
+		return sprite;
+	}
+
+	private static int index(int choppers)
+	{
+		return Math.max(0, Math.min(choppers, BUSY_CHOPPERS));
+	}
+
+	private static Color getDynamicColor(int choppers)
+	{
+		final float percent = Math.min(1f, choppers / (float) BUSY_CHOPPERS);
+		final float hue1 = rgbToHsbArray(Color.RED)[0];
+		final float hue2 = rgbToHsbArray(Color.GREEN)[0];
+		final float lerpedHue = hue1 + (hue2 - hue1) * percent;
+		return Color.getHSBColor(lerpedHue, 1f, 1f);
+	}
+
+	private static float[] rgbToHsbArray(Color color)
+	{
+		return Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), null);
+	}
+}
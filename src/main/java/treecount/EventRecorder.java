@@ -0,0 +1,343 @@
+package treecount;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.GameObject;
+import net.runelite.api.GameState;
+import net.runelite.api.Player;
+import net.runelite.api.Point;
+import net.runelite.api.Tile;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.client.RuneLite;
+
+/**
+ * Records the events reaching {@link TreeCountPlugin} to a compact binary log so that sessions can be replayed headless.
+ * Only tree objects are recorded because the plugin ignores every other object.
+ * <p>
+ * The log starts with {@link #MAGIC} and {@link #VERSION}, followed by records that each begin with a one byte tag.
+ * Scene coordinates are written as unsigned bytes, slots, orientations and animations as shorts.
+ * <p>
+ * A recording can start at any time, so the first tick after starting writes the trees already in the scene before its
+ * own record, which already holds every player. Events before that tick are not written, the snapshot covers them.
+ */
+@Slf4j
+class EventRecorder
+{
+	static final int MAGIC = 0x54435245;
+	static final int VERSION = 2;
+
+	// int baseX, int baseY, byte plane. Written whenever the scene base or plane differs from the last record
+	static final int SCENE = 1;
+	// byte game state ordinal
+	static final int GAME_STATE = 2;
+	// int tick, short local player slot, short player count, then per player: short slot, position and animation state
+	static final int GAME_TICK = 3;
+	// int object ID, byte plane, byte minX, byte minY, byte maxX, byte maxY
+	static final int OBJECT_SPAWNED = 4;
+	static final int OBJECT_DESPAWNED = 5;
+	// short slot, position and animation state
+	static final int PLAYER_SPAWNED = 6;
+	// short slot
+	static final int PLAYER_DESPAWNED = 7;
+	// short slot, position and animation state
+	static final int ANIMATION_CHANGED = 8;
+	// short tree count, then per tree: int object ID, byte plane, byte minX, byte minY, byte maxX, byte maxY
+	static final int SCENE_TREES = 9;
+
+	private static final File RECORDING_DIR = new File(RuneLite.RUNELITE_DIR, "tree-count");
+
+	private final Client client;
+	// Replaced by start and stop, which run outside of the client thread, so every write reads it once into a local
+	private volatile DataOutputStream out;
+	private int baseX;
+	private int baseY;
+	private int plane = -1;
+	// Set from starting until the first tick, which writes the scene's trees
+	private boolean snapshotPending;
+
+	@Inject
+	EventRecorder(Client client)
+	{
+		this.client = client;
+	}
+
+	boolean isRecording()
+	{
+		return out != null;
+	}
+
+	void start()
+	{
+		if (out != null)
+		{
+			return;
+		}
+
+		final File file = new File(RECORDING_DIR, "events-" + System.currentTimeMillis() + ".bin");
+		try
+		{
+			RECORDING_DIR.mkdirs();
+			final DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+			stream.writeInt(MAGIC);
+			stream.writeByte(VERSION);
+			plane = -1;
+			snapshotPending = true;
+			// Publish the stream last, so that the client thread only sees it once it is ready
+			out = stream;
+			log.debug("Recording tree count events to {}", file);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to start recording tree count events to {}", file, e);
+		}
+	}
+
+	void stop()
+	{
+		final DataOutputStream stream = out;
+		if (stream == null)
+		{
+			return;
+		}
+
+		out = null;
+		try
+		{
+			stream.close();
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to close tree count event recording", e);
+		}
+	}
+
+	void gameStateChanged(GameState gameState)
+	{
+		final DataOutputStream stream = out;
+		if (stream == null || snapshotPending)
+		{
+			return;
+		}
+
+		try
+		{
+			stream.writeByte(GAME_STATE);
+			stream.writeByte(gameState.ordinal());
+		}
+		catch (IOException e)
+		{
+			fail(stream, e);
+		}
+	}
+
+	void gameTick()
+	{
+		final DataOutputStream stream = out;
+		if (stream == null)
+		{
+			return;
+		}
+
+		try
+		{
+			writeScene(stream);
+			if (snapshotPending)
+			{
+				writeSceneTrees(stream);
+				snapshotPending = false;
+			}
+
+			final List<Player> players = client.getPlayers();
+			final Player localPlayer = client.getLocalPlayer();
+			stream.writeByte(GAME_TICK);
+			stream.writeInt(client.getTickCount());
+			stream.writeShort(localPlayer != null ? localPlayer.getId() : -1);
+			stream.writeShort(players.size());
+			for (Player player : players)
+			{
+				writePlayer(stream, player);
+			}
+		}
+		catch (IOException e)
+		{
+			fail(stream, e);
+		}
+	}
+
+	void objectSpawned(GameObject gameObject)
+	{
+		writeObject(OBJECT_SPAWNED, gameObject);
+	}
+
+	void objectDespawned(GameObject gameObject)
+	{
+		writeObject(OBJECT_DESPAWNED, gameObject);
+	}
+
+	void playerSpawned(Player player)
+	{
+		writePlayerEvent(PLAYER_SPAWNED, player);
+	}
+
+	void animationChanged(Player player)
+	{
+		writePlayerEvent(ANIMATION_CHANGED, player);
+	}
+
+	void playerDespawned(Player player)
+	{
+		final DataOutputStream stream = out;
+		if (stream == null || snapshotPending)
+		{
+			return;
+		}
+
+		try
+		{
+			stream.writeByte(PLAYER_DESPAWNED);
+			stream.writeShort(player.getId());
+		}
+		catch (IOException e)
+		{
+			fail(stream, e);
+		}
+	}
+
+	private void writeObject(int tag, GameObject gameObject)
+	{
+		final DataOutputStream stream = out;
+		if (stream == null || snapshotPending)
+		{
+			return;
+		}
+
+		try
+		{
+			writeScene(stream);
+			stream.writeByte(tag);
+			writeObjectState(stream, gameObject);
+		}
+		catch (IOException e)
+		{
+			fail(stream, e);
+		}
+	}
+
+	private static void writeObjectState(DataOutputStream stream, GameObject gameObject) throws IOException
+	{
+		final Point min = gameObject.getSceneMinLocation();
+		final Point max = gameObject.getSceneMaxLocation();
+		stream.writeInt(gameObject.getId());
+		stream.writeByte(gameObject.getPlane());
+		stream.writeByte(min.getX());
+		stream.writeByte(min.getY());
+		stream.writeByte(max.getX());
+		stream.writeByte(max.getY());
+	}
+
+	/**
+	 * Writes every tree in the scene once, from its south west tile
+	 */
+	private void writeSceneTrees(DataOutputStream stream) throws IOException
+	{
+		final List<GameObject> trees = new ArrayList<>();
+		final Tile[][][] tiles = client.getScene().getTiles();
+		for (int tilePlane = 0; tilePlane < tiles.length; tilePlane++)
+		{
+			for (int x = 0; x < tiles[tilePlane].length; x++)
+			{
+				for (int y = 0; y < tiles[tilePlane][x].length; y++)
+				{
+					final Tile tile = tiles[tilePlane][x][y];
+					if (tile == null)
+					{
+						continue;
+					}
+
+					for (GameObject gameObject : tile.getGameObjects())
+					{
+						if (gameObject != null && Tree.findTree(gameObject.getId()) != null
+							&& gameObject.getSceneMinLocation().getX() == x && gameObject.getSceneMinLocation().getY() == y)
+						{
+							trees.add(gameObject);
+						}
+					}
+				}
+			}
+		}
+
+		stream.writeByte(SCENE_TREES);
+		stream.writeShort(trees.size());
+		for (GameObject tree : trees)
+		{
+			writeObjectState(stream, tree);
+		}
+	}
+
+	private void writePlayerEvent(int tag, Player player)
+	{
+		final DataOutputStream stream = out;
+		if (stream == null || snapshotPending)
+		{
+			return;
+		}
+
+		try
+		{
+			writeScene(stream);
+			stream.writeByte(tag);
+			writePlayer(stream, player);
+		}
+		catch (IOException e)
+		{
+			fail(stream, e);
+		}
+	}
+
+	private static void writePlayer(DataOutputStream stream, Player player) throws IOException
+	{
+		final LocalPoint location = player.getLocalLocation();
+		stream.writeShort(player.getId());
+		stream.writeByte(location != null ? location.getSceneX() : 0);
+		stream.writeByte(location != null ? location.getSceneY() : 0);
+		stream.writeShort(player.getOrientation());
+		stream.writeShort(player.getAnimation());
+	}
+
+	private void writeScene(DataOutputStream stream) throws IOException
+	{
+		final int currentBaseX = client.getBaseX();
+		final int currentBaseY = client.getBaseY();
+		final int currentPlane = client.getPlane();
+		if (currentBaseX != baseX || currentBaseY != baseY || currentPlane != plane)
+		{
+			baseX = currentBaseX;
+			baseY = currentBaseY;
+			plane = currentPlane;
+			stream.writeByte(SCENE);
+			stream.writeInt(baseX);
+			stream.writeInt(baseY);
+			stream.writeByte(plane);
+		}
+	}
+
+	/**
+	 * Stops the recording the stream belongs to, unless it was already stopped and possibly replaced by a new one
+	 */
+	private void fail(DataOutputStream stream, IOException e)
+	{
+		if (out == stream)
+		{
+			log.warn("Stopped recording tree count events", e);
+			stop();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package treecount;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Fixed-bucket histogram of durations in nanoseconds that records without allocating. Each power of two is split into
+ * four linear sub-buckets, so a percentile is reported to within 25% of the true value.
+ */
+class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final long[] buckets = new long[BUCKETS];
+	@Getter
+	private long count;
+	@Getter
+	private long max;
+	private long countAtLastTick;
+	@Getter
+	private long countLastTick;
+
+	void record(long nanos)
+	{
+		if (nanos < 0)
+		{
+			nanos = 0;
+		}
+		buckets[bucketOf(nanos)]++;
+		count++;
+		if (nanos > max)
+		{
+			max = nanos;
+		}
+	}
+
+	/**
+	 * Marks the end of a game tick, so that {@link #getCountLastTick()} reports the events recorded during it
+	 */
+	void endTick()
+	{
+		countLastTick = count - countAtLastTick;
+		countAtLastTick = count;
+	}
+
+	/**
+	 * @param percentile in the range (0, 1]
+	 * @return upper bound of the bucket holding the given percentile, or 0 if nothing was recorded
+	 */
+	long getPercentile(double percentile)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(percentile * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+		{
+			seen += buckets[bucket];
+			if (seen >= rank)
+			{
+				return Math.min(max, upperBoundOf(bucket));
+			}
+		}
+		return max;
+	}
+
+	void reset()
+	{
+		Arrays.fill(buckets, 0);
+		count = 0;
+		max = 0;
+		countAtLastTick = 0;
+		countLastTick = 0;
+	}
+
+	static int bucketOf(long nanos)
+	{
+		if (nanos < SUB_BUCKETS)
+		{
+			return (int) nanos;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		final int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(int bucket)
+	{
+		if (bucket < SUB_BUCKETS)
+		{
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long subBucket = bucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	}
+}
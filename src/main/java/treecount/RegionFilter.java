@@ -0,0 +1,97 @@
+package treecount;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Regions in which trees and players are not tracked, compiled into one bit per region ID so that a tile can be checked
+ * with a shift and a lookup, without creating a {@link net.runelite.api.coords.WorldPoint}.
+ * <p>
+ * A region is ignored if it is in one of the enabled presets or the ignored list, unless it is also in the tracked list.
+ */
+final class RegionFilter
+{
+	// The guild is excluded by default, as its trees are not part of the Forestry events and it is usually crowded
+	static final int[] WOODCUTTING_GUILD = {6198, 6454};
+
+	private static final int REGION_COUNT = 1 << 16;
+
+	private final BitSet ignored = new BitSet(REGION_COUNT);
+
+	/**
+	 * @param ignoreWoodcuttingGuild whether to include the {@link #WOODCUTTING_GUILD} preset
+	 * @param trackedRegions comma separated region IDs to track even if ignored otherwise
+	 * @param ignoredRegions comma separated region IDs to ignore
+	 */
+	RegionFilter(boolean ignoreWoodcuttingGuild, String trackedRegions, String ignoredRegions)
+	{
+		if (ignoreWoodcuttingGuild)
+		{
+			for (int region : WOODCUTTING_GUILD)
+			{
+				ignored.set(region);
+			}
+		}
+
+		for (int region : parseRegions(ignoredRegions))
+		{
+			ignored.set(region);
+		}
+		for (int region : parseRegions(trackedRegions))
+		{
+			ignored.clear(region);
+		}
+	}
+
+	boolean isIgnored(int regionID)
+	{
+		return ignored.get(regionID & (REGION_COUNT - 1));
+	}
+
+	/**
+	 * @return whether the region holding the world tile is ignored
+	 */
+	boolean isIgnored(int worldX, int worldY)
+	{
+		return isIgnored(getRegionID(worldX, worldY));
+	}
+
+	/**
+	 * Same as {@link net.runelite.api.coords.WorldPoint#getRegionID()} without creating the point
+	 */
+	static int getRegionID(int worldX, int worldY)
+	{
+		return ((worldX >> 6) << 8) | (worldY >> 6);
+	}
+
+	/**
+	 * Parses a comma separated list of region IDs, skipping anything that is not a valid ID
+	 */
+	static int[] parseRegions(String regions)
+	{
+		if (regions == null || regions.trim().isEmpty())
+		{
+			return new int[0];
+		}
+
+		final String[] parts = regions.split(",");
+		final int[] parsed = new int[parts.length];
+		int count = 0;
+		for (String part : parts)
+		{
+			try
+			{
+				final int region = Integer.parseInt(part.trim());
+				if (region >= 0 && region < REGION_COUNT)
+				{
+					parsed[count++] = region;
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				// Ignore entries that are not numbers, such as a trailing comma
+			}
+		}
+		return count == parsed.length ? parsed : Arrays.copyOf(parsed, count);
+	}
+}
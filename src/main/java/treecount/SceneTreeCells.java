@@ -0,0 +1,127 @@
+package treecount;
+
+import java.util.Arrays;
+
+/**
+ * Scene-local spatial index of trees, bucketed by the {@value #CELL_SIZE}x{@value #CELL_SIZE} tile cell holding their
+ * south west tile. Each cell is a list of tree handles linked through per-handle arrays, so adding and removing a tree
+ * is constant time and iterating a cell does not allocate.
+ */
+class SceneTreeCells
+{
+	static final int CELL_SHIFT = 3;
+	static final int CELL_SIZE = 1 << CELL_SHIFT;
+	static final int CELLS_PER_SIDE = (SceneTreeGrid.SCENE_SIZE + CELL_SIZE - 1) / CELL_SIZE;
+
+	private static final int NO_CELL = -1;
+
+	private final int[] cellFirstTree = new int[SceneTreeGrid.PLANES * CELLS_PER_SIDE * CELLS_PER_SIDE];
+	private int[] treeCells = new int[0];
+	private int[] treeNext = new int[0];
+	private int[] treePrevious = new int[0];
+
+	SceneTreeCells()
+	{
+		Arrays.fill(cellFirstTree, SceneTreeGrid.NO_TREE);
+	}
+
+	/**
+	 * Makes room for handles up to the given capacity
+	 */
+	void grow(int capacity)
+	{
+		final int previousCapacity = treeCells.length;
+		treeCells = Arrays.copyOf(treeCells, capacity);
+		Arrays.fill(treeCells, previousCapacity, capacity, NO_CELL);
+		treeNext = Arrays.copyOf(treeNext, capacity);
+		treePrevious = Arrays.copyOf(treePrevious, capacity);
+	}
+
+	/**
+	 * Adds the tree to the cell of its south west tile. Trees outside the scene are not indexed
+	 */
+	void add(int handle, int plane, int sceneX, int sceneY)
+	{
+		if (plane < 0 || plane >= SceneTreeGrid.PLANES || sceneX < 0 || sceneX >= SceneTreeGrid.SCENE_SIZE
+			|| sceneY < 0 || sceneY >= SceneTreeGrid.SCENE_SIZE)
+		{
+			return;
+		}
+
+		final int cell = index(plane, sceneX >> CELL_SHIFT, sceneY >> CELL_SHIFT);
+		final int first = cellFirstTree[cell];
+		treePrevious[handle] = SceneTreeGrid.NO_TREE;
+		treeNext[handle] = first;
+		if (first != SceneTreeGrid.NO_TREE)
+		{
+			treePrevious[first] = handle;
+		}
+		cellFirstTree[cell] = handle;
+		treeCells[handle] = cell;
+	}
+
+	void remove(int handle)
+	{
+		final int cell = treeCells[handle];
+		if (cell == NO_CELL)
+		{
+			return;
+		}
+
+		final int previous = treePrevious[handle];
+		final int next = treeNext[handle];
+		if (previous != SceneTreeGrid.NO_TREE)
+		{
+			treeNext[previous] = next;
+		}
+		else
+		{
+			cellFirstTree[cell] = next;
+		}
+		if (next != SceneTreeGrid.NO_TREE)
+		{
+			treePrevious[next] = previous;
+		}
+		treeCells[handle] = NO_CELL;
+	}
+
+	void reset()
+	{
+		Arrays.fill(cellFirstTree, SceneTreeGrid.NO_TREE);
+		Arrays.fill(treeCells, NO_CELL);
+	}
+
+	/**
+	 * @return first tree in the cell, or {@link SceneTreeGrid#NO_TREE} if it is empty or outside the scene. Continue
+	 * with {@link #next(int)}
+	 */
+	int first(int plane, int cellX, int cellY)
+	{
+		if (plane < 0 || plane >= SceneTreeGrid.PLANES || cellX < 0 || cellX >= CELLS_PER_SIDE || cellY < 0 || cellY >= CELLS_PER_SIDE)
+		{
+			return SceneTreeGrid.NO_TREE;
+		}
+		return cellFirstTree[index(plane, cellX, cellY)];
+	}
+
+	/**
+	 * @return next tree in the same cell as the given one, or {@link SceneTreeGrid#NO_TREE}
+	 */
+	int next(int handle)
+	{
+		return treeNext[handle];
+	}
+
+	/**
+	 * @return the cell holding the scene coordinate, clamped to the scene
+	 */
+	static int cellOf(int sceneCoordinate)
+	{
+		return Math.max(0, Math.min(sceneCoordinate, SceneTreeGrid.SCENE_SIZE - 1)) >> CELL_SHIFT;
+	}
+
+	private static int index(int plane, int cellX, int cellY)
+	{
+		return (plane * CELLS_PER_SIDE + cellX) * CELLS_PER_SIDE + cellY;
+	}
+}
@@ -0,0 +1,83 @@
+package treecount;
+
+import java.util.Arrays;
+
+/**
+ * Scene-local lookup of which tree occupies a tile, indexed by plane and scene coordinates.
+ * Cells store the tree handle plus one so that a zeroed cell means there is no tree on that tile.
+ */
+class SceneTreeGrid
+{
+	static final int NO_TREE = -1;
+	static final int SCENE_SIZE = 104;
+	static final int PLANES = 4;
+
+	private final int[] cells = new int[PLANES * SCENE_SIZE * SCENE_SIZE];
+
+	/**
+	 * Gets the handle of the tree occupying the given tile
+	 *
+	 * @param plane
+	 * @param sceneX
+	 * @param sceneY
+	 * @return handle of the tree on the tile, or {@link #NO_TREE} if there is none or the tile is outside the scene
+	 */
+	int get(int plane, int sceneX, int sceneY)
+	{
+		if (!inScene(plane, sceneX, sceneY))
+		{
+			return NO_TREE;
+		}
+		return cells[index(plane, sceneX, sceneY)] - 1;
+	}
+
+	/**
+	 * Marks every tile of the footprint between the given scene corners (inclusive) as occupied by the tree
+	 */
+	void fill(int plane, int minX, int minY, int maxX, int maxY, int handle)
+	{
+		for (int x = minX; x <= maxX; x++)
+		{
+			for (int y = minY; y <= maxY; y++)
+			{
+				if (inScene(plane, x, y))
+				{
+					cells[index(plane, x, y)] = handle + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clears the tiles of the footprint between the given scene corners (inclusive), leaving tiles that have since
+	 * been claimed by another tree untouched
+	 */
+	void clear(int plane, int minX, int minY, int maxX, int maxY, int handle)
+	{
+		for (int x = minX; x <= maxX; x++)
+		{
+			for (int y = minY; y <= maxY; y++)
+			{
+				if (inScene(plane, x, y) && cells[index(plane, x, y)] == handle + 1)
+				{
+					cells[index(plane, x, y)] = 0;
+				}
+			}
+		}
+	}
+
+	void reset()
+	{
+		Arrays.fill(cells, 0);
+	}
+
+	private static boolean inScene(int plane, int sceneX, int sceneY)
+	{
+		return plane >= 0 && plane < PLANES && sceneX >= 0 && sceneX < SCENE_SIZE && sceneY >= 0 && sceneY < SCENE_SIZE;
+	}
+
+	private static int index(int plane, int sceneX, int sceneY)
+	{
+		return (plane * SCENE_SIZE + sceneX) * SCENE_SIZE + sceneY;
+	}
+}
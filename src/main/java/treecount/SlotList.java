@@ -0,0 +1,70 @@
+package treecount;
+
+import java.util.Arrays;
+
+/**
+ * Compact, unordered set of slot indices in the range [0, capacity) with constant-time add, remove and membership.
+ * Removing a slot moves the last slot into its place, so iterating from the end is safe while removing the current slot.
+ */
+class SlotList
+{
+	private final int[] slots;
+	private final int[] positions;
+	private int size;
+
+	SlotList(int capacity)
+	{
+		slots = new int[capacity];
+		positions = new int[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	boolean add(int slot)
+	{
+		if (positions[slot] != -1)
+		{
+			return false;
+		}
+		positions[slot] = size;
+		slots[size++] = slot;
+		return true;
+	}
+
+	boolean remove(int slot)
+	{
+		final int position = positions[slot];
+		if (position == -1)
+		{
+			return false;
+		}
+		final int last = slots[--size];
+		slots[position] = last;
+		positions[last] = position;
+		positions[slot] = -1;
+		return true;
+	}
+
+	boolean contains(int slot)
+	{
+		return positions[slot] != -1;
+	}
+
+	int get(int index)
+	{
+		return slots[index];
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	void clear()
+	{
+		for (int i = 0; i < size; i++)
+		{
+			positions[slots[i]] = -1;
+		}
+		size = 0;
+	}
+}
@@ -24,8 +24,6 @@
  */
 package treecount;
 
-import com.google.common.collect.ImmutableMap;
-import java.util.Map;
 import lombok.Getter;
 import net.runelite.api.NullObjectID;
 import net.runelite.api.ObjectID;
@@ -69,6 +67,7 @@ public enum Tree
 
 
 	private final boolean providesForestryBoost;
+	// Built-in IDs, more can be added through the tree definitions, see TreeDefinitions
 	private final int[] treeIds;
 
 	Tree(boolean providesForestryBoost, int... treeIds)
@@ -77,30 +76,6 @@ public enum Tree
 		this.treeIds = treeIds;
 	}
 
-	private static final Map<Integer, Tree> ALL_TREES;
-	private static final Map<Integer, Tree> FORESTRY_TREES;
-
-	static
-	{
-		ImmutableMap.Builder<Integer, Tree> allTreesBuilder = new ImmutableMap.Builder<>();
-		ImmutableMap.Builder<Integer, Tree> forestryTreesBuilder = new ImmutableMap.Builder<>();
-
-		for (Tree tree : values())
-		{
-			for (int treeId : tree.treeIds)
-			{
-				allTreesBuilder.put(treeId, tree);
-				if (tree.providesForestryBoost)
-				{
-					forestryTreesBuilder.put(treeId, tree);
-				}
-			}
-		}
-
-		ALL_TREES = allTreesBuilder.build();
-		FORESTRY_TREES = forestryTreesBuilder.build();
-	}
-
 	/**
 	 * Finds the tree that matches the given object ID
 	 *
@@ -109,7 +84,7 @@ public enum Tree
 	 */
 	static Tree findTree(int objectId)
 	{
-		return ALL_TREES.get(objectId);
+		return TreeDefinitions.get().findTree(objectId);
 	}
 
 	/**
@@ -120,6 +95,7 @@ public enum Tree
 	 */
 	static Tree findForestryTree(int objectId)
 	{
-		return FORESTRY_TREES.get(objectId);
+		final Tree tree = findTree(objectId);
+		return tree != null && tree.providesForestryBoost ? tree : null;
 	}
 }
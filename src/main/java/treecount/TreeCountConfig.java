@@ -4,10 +4,12 @@ import java.awt.Color;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
 
-@ConfigGroup("treecount")
+@ConfigGroup(TreeCountConfig.GROUP)
 public interface TreeCountConfig extends Config
 {
+	String GROUP = "treecount";
 	boolean DEBUG = true;
 
 	@ConfigItem(
@@ -40,6 +42,99 @@ public interface TreeCountConfig extends Config
         return Color.YELLOW;
     }
 
+	@Range(
+		min = 1,
+		max = 104
+	)
+	@ConfigItem(
+		keyName = "drawDistance",
+		name = "Draw Distance",
+		description = "The maximum distance in tiles from you that trees are counted on screen"
+	)
+	default int drawDistance()
+	{
+		return 32;
+	}
+
+	@Range(
+		max = 104
+	)
+	@ConfigItem(
+		keyName = "outlineDistance",
+		name = "Outline Distance",
+		description = "The distance in tiles within which trees are drawn with their hull, further trees only show their count"
+	)
+	default int outlineDistance()
+	{
+		return 16;
+	}
+
+	@Range(
+		min = 1
+	)
+	@ConfigItem(
+		keyName = "maxLabels",
+		name = "Max Trees Shown",
+		description = "The maximum number of trees to count on screen at once, the nearest are shown first"
+	)
+	default int maxLabels()
+	{
+		return 30;
+	}
+
+	@Range(
+		max = 20
+	)
+	@ConfigItem(
+		keyName = "topTrees",
+		name = "Busiest Trees Shown",
+		description = "The number of busiest forestry trees in the area to list in a panel with their count and distance, 0 to hide the panel"
+	)
+	default int topTrees()
+	{
+		return 0;
+	}
+
+	@ConfigItem(
+		keyName = "recordHistory",
+		name = "Record Chopper History",
+		description = "Configures whether to keep a history of the chopper count of forestry trees in the tree-count folder in the RuneLite directory"
+	)
+	default boolean recordHistory()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "shareCounts",
+		name = "Share Counts Between Clients",
+		description = "Configures whether to share forestry tree counts with the other clients running on this computer and show theirs"
+	)
+	default boolean shareCounts()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "ignoredRegions",
+		name = "Ignored Regions",
+		description = "Comma separated region IDs in which trees and players are not counted"
+	)
+	default String ignoredRegions()
+	{
+		return "";
+	}
+
+	@ConfigItem(
+		keyName = "trackedRegions",
+		name = "Tracked Regions",
+		description = "Comma separated region IDs in which trees and players are always counted, even if ignored by default or listed in Ignored Regions"
+	)
+	default String trackedRegions()
+	{
+		return "";
+	}
+
 	@ConfigItem(
 		keyName = "renderTreeTiles",
 		name = "(Debug) Show Tree Tiles",
@@ -105,4 +200,37 @@ public interface TreeCountConfig extends Config
 	{
 		return false;
 	}
+
+	@ConfigItem(
+		keyName = "showMetrics",
+		name = "(Debug) Show Latency Metrics",
+		description = "Configures whether to time the plugin's event handlers and overlay and show p50/p99/max latency and events per tick in a panel",
+		hidden = !DEBUG
+	)
+	default boolean showMetrics()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "recordEvents",
+		name = "(Debug) Record Events",
+		description = "Configures whether to record the events the plugin receives to the tree-count folder in the RuneLite directory for headless replay",
+		hidden = !DEBUG
+	)
+	default boolean recordEvents()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "checkCounts",
+		name = "(Debug) Check Counts",
+		description = "Configures whether to check every tick that each tree's count matches the players assigned to it, correcting and logging any that do not",
+		hidden = !DEBUG
+	)
+	default boolean checkCounts()
+	{
+		return false;
+	}
 }
@@ -0,0 +1,923 @@
+package treecount;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Client-independent core of the tree counting logic. Trees are referred to by int handles, players by their slot in the
+ * client's player list and tiles by world coordinates packed into an int with {@link #packLocation(int, int, int)}.
+ * <p>
+ * A player is counted towards the tree they are facing while woodcutting, or the only tree they are standing next to
+ * if they are woodcutting without facing one. The engine does not know anything about the client, so policy such as
+ * excluding the local player or the Woodcutting Guild is left to the caller.
+ */
+class TreeCountEngine
+{
+	static final int NO_TREE = SceneTreeGrid.NO_TREE;
+	static final int NO_PLAYER = -1;
+	static final int MAX_PLAYERS = 2048;
+	static final int IDLE_ANIMATION = -1;
+
+	// Direction indices match the order of net.runelite.api.coords.Direction: south, west, north, east
+	private static final int[] DIRECTION_DX = {0, -1, 0, 1};
+	private static final int[] DIRECTION_DY = {-1, 0, 1, 0};
+
+	// Orientations are in the range [0, 2048), so the nearest direction of each is resolved once up front
+	private static final int ORIENTATION_MASK = 2047;
+	private static final byte[] NEAREST_DIRECTION = new byte[ORIENTATION_MASK + 1];
+
+	static
+	{
+		for (int orientation = 0; orientation <= ORIENTATION_MASK; orientation++)
+		{
+			int round = orientation >>> 9;
+			if ((orientation & 256) != 0)
+			{
+				round++;
+			}
+			NEAREST_DIRECTION[orientation] = (byte) (round & 3);
+		}
+	}
+
+	private final IntPredicate woodcuttingAnimation;
+	private final SceneTreeGrid grid = new SceneTreeGrid();
+	private final SceneTreeCells cells = new SceneTreeCells();
+	// Largest width or height of any tree seen, which bounds how far a tree reaches out of the cell it is indexed in
+	private int maxTreeSize = 1;
+	private int baseX;
+	private int baseY;
+
+	// Tree table indexed by handle. The footprint is stored in world coordinates, inclusive of both corners
+	private boolean[] treeActive = new boolean[0];
+	private int[] treeObjectIds = new int[0];
+	private boolean[] treeForestry = new boolean[0];
+	private int[] treePlanes = new int[0];
+	private int[] treeMinX = new int[0];
+	private int[] treeMinY = new int[0];
+	private int[] treeMaxX = new int[0];
+	private int[] treeMaxY = new int[0];
+	private int[] treeCounts = new int[0];
+	// Head of each tree's list of assigned players, linked through playerNext and playerPrevious. Package-private so
+	// that tests can break the invariant reconcileCounts checks
+	int[] treeFirstChopper = new int[0];
+	// Trees whose assigned players changed since the counts were last reconciled
+	private int[] changedTrees = new int[0];
+	private boolean[] treeChanged = new boolean[0];
+	private int changedTreeCount;
+	// Forestry trees with at least one chopper, bucketed by count into lists linked through treeNextRanked and
+	// treePreviousRanked, so that the busiest trees can be listed without sorting
+	private final int[] countFirstTree = new int[MAX_PLAYERS + 1];
+	private int[] treeNextRanked = new int[0];
+	private int[] treePreviousRanked = new int[0];
+	private int highestCount;
+	// Trees kept from before a scene load that have not spawned again in the new scene yet
+	private boolean[] treeStale = new boolean[0];
+	private int[] freeTreeHandles = new int[0];
+	private int freeTreeHandleCount;
+	private int treeCapacity;
+	private int treeCount;
+
+	// Player state indexed by slot
+	private final boolean[] playerActive = new boolean[MAX_PLAYERS];
+	private final int[] playerLocations = new int[MAX_PLAYERS];
+	private final int[] playerOrientations = new int[MAX_PLAYERS];
+	private final int[] playerAnimations = new int[MAX_PLAYERS];
+	private final int[] playerTrees = new int[MAX_PLAYERS];
+	// Neighbours of each player in the list of players assigned to the same tree
+	private final int[] playerNext = new int[MAX_PLAYERS];
+	private final int[] playerPrevious = new int[MAX_PLAYERS];
+	// Slots of players that are woodcutting or assigned to a tree, which are the only players whose orientation matters
+	private final SlotList choppers = new SlotList(MAX_PLAYERS);
+
+	private final int[] adjacentScratch = new int[DIRECTION_DX.length];
+
+	/**
+	 * @param woodcuttingAnimation tests whether an animation ID is a woodcutting animation
+	 */
+	TreeCountEngine(IntPredicate woodcuttingAnimation)
+	{
+		this.woodcuttingAnimation = woodcuttingAnimation;
+		growTrees(256);
+		Arrays.fill(playerTrees, NO_TREE);
+		Arrays.fill(countFirstTree, NO_TREE);
+	}
+
+	static int packLocation(int x, int y, int plane)
+	{
+		return (plane << 28) | (x << 14) | y;
+	}
+
+	static int locationX(int location)
+	{
+		return (location >>> 14) & 0x3FFF;
+	}
+
+	static int locationY(int location)
+	{
+		return location & 0x3FFF;
+	}
+
+	static int locationPlane(int location)
+	{
+		return location >>> 28;
+	}
+
+	/**
+	 * Gets the direction an orientation is closest to, rounding the same way as RuneLite's {@code Angle#getNearestDirection}
+	 *
+	 * @param orientation
+	 * @return direction index, in the order south, west, north, east
+	 */
+	static int nearestDirection(int orientation)
+	{
+		return NEAREST_DIRECTION[orientation & ORIENTATION_MASK];
+	}
+
+	/**
+	 * Moves the scene the tile grid covers, re-placing every known tree relative to the new base
+	 */
+	void setSceneBase(int baseX, int baseY)
+	{
+		if (baseX == this.baseX && baseY == this.baseY)
+		{
+			return;
+		}
+
+		this.baseX = baseX;
+		this.baseY = baseY;
+		grid.reset();
+		cells.reset();
+		for (int handle = 0; handle < treeCapacity; handle++)
+		{
+			if (treeActive[handle])
+			{
+				placeTree(handle);
+			}
+		}
+	}
+
+	/**
+	 * Forgets every tree and player
+	 */
+	void reset()
+	{
+		grid.reset();
+		cells.reset();
+		Arrays.fill(treeActive, false);
+		Arrays.fill(treeStale, false);
+		Arrays.fill(treeCounts, 0);
+		Arrays.fill(treeFirstChopper, NO_PLAYER);
+		clearChangedTrees();
+		clearRanking();
+		freeTreeHandleCount = 0;
+		treeCapacity = 0;
+		treeCount = 0;
+
+		Arrays.fill(playerActive, false);
+		Arrays.fill(playerTrees, NO_TREE);
+		choppers.clear();
+	}
+
+	/**
+	 * Forgets every player and keeps the trees, marking them stale until they spawn again in the loaded scene. Trees are
+	 * stored in world coordinates, so the ones that are still in the scene after the load are reused as they respawn
+	 * and only those that left the scene are removed by {@link #sceneLoaded()}
+	 */
+	void sceneLoading()
+	{
+		Arrays.fill(treeCounts, 0);
+		Arrays.fill(treeFirstChopper, NO_PLAYER);
+		clearChangedTrees();
+		clearRanking();
+		for (int handle = 0; handle < treeCapacity; handle++)
+		{
+			treeStale[handle] = treeActive[handle];
+		}
+
+		Arrays.fill(playerActive, false);
+		Arrays.fill(playerTrees, NO_TREE);
+		choppers.clear();
+	}
+
+	/**
+	 * Removes the trees kept by {@link #sceneLoading()} that did not spawn again once the new scene finished loading
+	 *
+	 * @return number of trees removed
+	 */
+	int sceneLoaded()
+	{
+		int removed = 0;
+		for (int handle = 0; handle < treeCapacity; handle++)
+		{
+			if (treeStale[handle])
+			{
+				treeDespawned(handle);
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Sets every tree's count to zero and unassigns all players, keeping the trees and players themselves
+	 */
+	void clearCounts()
+	{
+		for (int i = choppers.size() - 1; i >= 0; i--)
+		{
+			final int slot = choppers.get(i);
+			if (playerTrees[slot] != NO_TREE)
+			{
+				unlink(slot);
+			}
+			updateChopper(slot);
+		}
+	}
+
+	/**
+	 * Adds a tree occupying the rectangle between the given world coordinates (inclusive). If the same tree is already
+	 * known at that location, such as one kept across a scene load, it is reused instead
+	 *
+	 * @return handle of the tree
+	 */
+	int treeSpawned(int objectId, boolean forestry, int plane, int minX, int minY, int maxX, int maxY)
+	{
+		final int existing = grid.get(plane, minX - baseX, minY - baseY);
+		if (existing != NO_TREE && treeObjectIds[existing] == objectId && treePlanes[existing] == plane
+			&& treeMinX[existing] == minX && treeMinY[existing] == minY && treeMaxX[existing] == maxX && treeMaxY[existing] == maxY)
+		{
+			treeStale[existing] = false;
+			return existing;
+		}
+
+		final int handle = allocateTreeHandle();
+		treeActive[handle] = true;
+		treeObjectIds[handle] = objectId;
+		treeForestry[handle] = forestry;
+		treePlanes[handle] = plane;
+		treeMinX[handle] = minX;
+		treeMinY[handle] = minY;
+		treeMaxX[handle] = maxX;
+		treeMaxY[handle] = maxY;
+		treeCounts[handle] = 0;
+		treeFirstChopper[handle] = NO_PLAYER;
+		treeStale[handle] = false;
+		treeCount++;
+		maxTreeSize = Math.max(maxTreeSize, Math.max(maxX - minX, maxY - minY) + 1);
+		placeTree(handle);
+		return handle;
+	}
+
+	/**
+	 * Removes a tree, unassigning anyone still chopping it
+	 */
+	void treeDespawned(int handle)
+	{
+		if (!isTree(handle))
+		{
+			return;
+		}
+
+		int slot;
+		while ((slot = treeFirstChopper[handle]) != NO_PLAYER)
+		{
+			unlink(slot);
+			updateChopper(slot);
+		}
+
+		cells.remove(handle);
+		grid.clear(treePlanes[handle], treeMinX[handle] - baseX, treeMinY[handle] - baseY,
+			treeMaxX[handle] - baseX, treeMaxY[handle] - baseY, handle);
+		setCount(handle, 0);
+		treeActive[handle] = false;
+		treeStale[handle] = false;
+		treeCount--;
+		freeTreeHandles[freeTreeHandleCount++] = handle;
+	}
+
+	/**
+	 * @return handle of the tree on the tile, or {@link #NO_TREE}
+	 */
+	int findTree(int location)
+	{
+		return grid.get(locationPlane(location), locationX(location) - baseX, locationY(location) - baseY);
+	}
+
+	/**
+	 * @return handle of the tree on the tile in front of the given location, or {@link #NO_TREE}
+	 */
+	int findFacingTree(int location, int orientation)
+	{
+		final int direction = nearestDirection(orientation);
+		return grid.get(locationPlane(location),
+			locationX(location) - baseX + DIRECTION_DX[direction],
+			locationY(location) - baseY + DIRECTION_DY[direction]);
+	}
+
+	/**
+	 * Writes the handles of the trees on the four tiles next to the given location into the given array
+	 *
+	 * @param trees array of at least four elements to write the handles to
+	 * @return number of handles written
+	 */
+	int findAdjacentTrees(int location, boolean forestryOnly, int[] trees)
+	{
+		final int plane = locationPlane(location);
+		final int sceneX = locationX(location) - baseX;
+		final int sceneY = locationY(location) - baseY;
+		int count = 0;
+		for (int direction = 0; direction < DIRECTION_DX.length; direction++)
+		{
+			final int handle = grid.get(plane, sceneX + DIRECTION_DX[direction], sceneY + DIRECTION_DY[direction]);
+			if (handle != NO_TREE && (!forestryOnly || treeForestry[handle]))
+			{
+				trees[count++] = handle;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the handles of the trees whose footprint overlaps the rectangle between the given world coordinates
+	 * (inclusive) into the array, stopping once it is full. Only trees in the current scene are found
+	 *
+	 * @return number of handles written
+	 */
+	int findTreesInArea(int plane, int minX, int minY, int maxX, int maxY, int[] trees)
+	{
+		// Trees are indexed by their south west tile, so trees whose cell is below or left of the area may reach into it
+		final int minCellX = SceneTreeCells.cellOf(minX - baseX - (maxTreeSize - 1));
+		final int minCellY = SceneTreeCells.cellOf(minY - baseY - (maxTreeSize - 1));
+		final int maxCellX = SceneTreeCells.cellOf(maxX - baseX);
+		final int maxCellY = SceneTreeCells.cellOf(maxY - baseY);
+		int count = 0;
+		for (int cellX = minCellX; cellX <= maxCellX; cellX++)
+		{
+			for (int cellY = minCellY; cellY <= maxCellY; cellY++)
+			{
+				for (int tree = cells.first(plane, cellX, cellY); tree != NO_TREE; tree = cells.next(tree))
+				{
+					if (treeMinX[tree] <= maxX && treeMaxX[tree] >= minX && treeMinY[tree] <= maxY && treeMaxY[tree] >= minY)
+					{
+						if (count == trees.length)
+						{
+							return count;
+						}
+						trees[count++] = tree;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the tree closest to a tile, measured as the Chebyshev distance to the nearest tile of its footprint. Cells
+	 * are searched in rings around the tile, stopping as soon as no further ring can hold a closer tree
+	 *
+	 * @param maxDistance furthest distance in tiles a tree may be at
+	 * @param filter tests whether a tree handle may be returned, such as on its type or count
+	 * @return handle of the closest accepted tree, or {@link #NO_TREE}
+	 */
+	int findNearestTree(int location, int maxDistance, IntPredicate filter)
+	{
+		final int plane = locationPlane(location);
+		final int x = locationX(location);
+		final int y = locationY(location);
+		final int centerX = SceneTreeCells.cellOf(x - baseX);
+		final int centerY = SceneTreeCells.cellOf(y - baseY);
+
+		int nearest = NO_TREE;
+		int nearestDistance = maxDistance + 1;
+		for (int ring = 0; ring < SceneTreeCells.CELLS_PER_SIDE; ring++)
+		{
+			// Trees indexed in this ring are at least ring - 1 whole cells away, less however far they reach towards the tile
+			final int ringDistance = Math.max(0, (ring - 1) * SceneTreeCells.CELL_SIZE + 1 - (maxTreeSize - 1));
+			if (ringDistance >= nearestDistance)
+			{
+				break;
+			}
+
+			for (int cellX = centerX - ring; cellX <= centerX + ring; cellX++)
+			{
+				// Only the top and bottom rows of the ring are needed unless on its left or right edge
+				final boolean edge = cellX == centerX - ring || cellX == centerX + ring;
+				final int step = edge || ring == 0 ? 1 : 2 * ring;
+				for (int cellY = centerY - ring; cellY <= centerY + ring; cellY += step)
+				{
+					for (int tree = cells.first(plane, cellX, cellY); tree != NO_TREE; tree = cells.next(tree))
+					{
+						final int distance = distanceTo(tree, x, y);
+						if (distance < nearestDistance && filter.test(tree))
+						{
+							nearest = tree;
+							nearestDistance = distance;
+						}
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Starts tracking a player, assigning them to a tree if they are already woodcutting
+	 */
+	void playerSpawned(int slot, int location, int orientation, int animation)
+	{
+		if (playerActive[slot])
+		{
+			unassign(slot);
+		}
+
+		playerActive[slot] = true;
+		playerLocations[slot] = location;
+		playerOrientations[slot] = orientation;
+		playerAnimations[slot] = animation;
+		playerTrees[slot] = NO_TREE;
+		if (woodcuttingAnimation.test(animation))
+		{
+			assign(slot);
+		}
+		updateChopper(slot);
+	}
+
+	void playerDespawned(int slot)
+	{
+		unassign(slot);
+		playerActive[slot] = false;
+		choppers.remove(slot);
+	}
+
+	/**
+	 * Updates where a player is standing. The player's tree is only re-resolved on their next turn or animation change
+	 */
+	void playerMoved(int slot, int location)
+	{
+		playerLocations[slot] = location;
+	}
+
+	/**
+	 * Updates a player's orientation, moving them to the tree they now face if they are woodcutting
+	 */
+	void playerTurned(int slot, int orientation)
+	{
+		playerOrientations[slot] = orientation;
+		unassign(slot);
+		if (woodcuttingAnimation.test(playerAnimations[slot]))
+		{
+			assign(slot);
+		}
+	}
+
+	/**
+	 * Updates a player's animation, assigning them to a tree when they start woodcutting and unassigning them when they
+	 * go idle
+	 */
+	void animationChanged(int slot, int animation)
+	{
+		playerAnimations[slot] = animation;
+		if (woodcuttingAnimation.test(animation) && treeCount > 0)
+		{
+			assign(slot);
+		}
+		else if (animation == IDLE_ANIMATION)
+		{
+			unassign(slot);
+		}
+		else
+		{
+			updateChopper(slot);
+		}
+	}
+
+	/**
+	 * Applies everything that changed about a player since they were last updated in one step, resolving their tree at
+	 * most once. Equivalent to {@link #playerMoved(int, int)} followed by {@link #playerTurned(int, int)} if the
+	 * orientation changed and {@link #animationChanged(int, int)}
+	 */
+	void playerUpdated(int slot, int location, int orientation, int animation)
+	{
+		final boolean turned = orientation != playerOrientations[slot];
+		playerLocations[slot] = location;
+		playerOrientations[slot] = orientation;
+		playerAnimations[slot] = animation;
+		if (woodcuttingAnimation.test(animation) && treeCount > 0)
+		{
+			assign(slot);
+		}
+		else if (turned || animation == IDLE_ANIMATION)
+		{
+			unassign(slot);
+		}
+		else
+		{
+			updateChopper(slot);
+		}
+	}
+
+	/**
+	 * Assigns the player to the tree they are facing or, while woodcutting, the only tree next to them. Any previous
+	 * assignment is released first so a player is never counted twice
+	 */
+	void assign(int slot)
+	{
+		unassign(slot);
+
+		final int location = playerLocations[slot];
+		int tree = findFacingTree(location, playerOrientations[slot]);
+		if (tree == NO_TREE && woodcuttingAnimation.test(playerAnimations[slot]))
+		{
+			// Hotfix for #24 where players chopping with a felling axe could be chopping a tree that is not facing them
+			// This will treat the only adjacent tree as the tree the player is chopping
+			if (findAdjacentTrees(location, false, adjacentScratch) == 1)
+			{
+				tree = adjacentScratch[0];
+			}
+		}
+
+		if (tree != NO_TREE)
+		{
+			link(slot, tree);
+		}
+		updateChopper(slot);
+	}
+
+	/**
+	 * Releases the player from the tree they are assigned to, if any
+	 */
+	void unassign(int slot)
+	{
+		if (playerTrees[slot] != NO_TREE)
+		{
+			unlink(slot);
+		}
+		updateChopper(slot);
+	}
+
+	/**
+	 * Checks the count of every tree whose players changed since the last call against the number of players actually
+	 * assigned to it, correcting any that drifted. Each changed tree's whole chopper list is walked.
+	 * <p>
+	 * This is a debug check rather than part of the counting: the count and the chopper list are only changed together
+	 * in {@link #link(int, int)} and {@link #unlink(int)}, so a correction means some other path broke that. The plugin
+	 * only runs it while the (Debug) Check Counts option is enabled
+	 *
+	 * @return number of counts that had to be corrected
+	 */
+	int reconcileCounts()
+	{
+		int repaired = 0;
+		for (int i = 0; i < changedTreeCount; i++)
+		{
+			final int tree = changedTrees[i];
+			treeChanged[tree] = false;
+			if (!treeActive[tree])
+			{
+				continue;
+			}
+
+			int assigned = 0;
+			for (int slot = treeFirstChopper[tree]; slot != NO_PLAYER; slot = playerNext[slot])
+			{
+				assigned++;
+			}
+			if (treeCounts[tree] != assigned)
+			{
+				setCount(tree, assigned);
+				repaired++;
+			}
+		}
+		changedTreeCount = 0;
+		return repaired;
+	}
+
+	boolean isTree(int handle)
+	{
+		return handle >= 0 && handle < treeCapacity && treeActive[handle];
+	}
+
+	/**
+	 * @return number of players assigned to the tree, or 0 if the handle is not a tree
+	 */
+	int getCount(int handle)
+	{
+		return isTree(handle) ? treeCounts[handle] : 0;
+	}
+
+	/**
+	 * @return slot of the first player assigned to the tree, or {@link #NO_PLAYER}. Continue with
+	 * {@link #getNextChopper(int)}
+	 */
+	int getFirstChopper(int handle)
+	{
+		return isTree(handle) ? treeFirstChopper[handle] : NO_PLAYER;
+	}
+
+	/**
+	 * @return slot of the next player assigned to the same tree as the given one, or {@link #NO_PLAYER}
+	 */
+	int getNextChopper(int slot)
+	{
+		return playerNext[slot];
+	}
+
+	/**
+	 * Writes the handles of the forestry trees with the most choppers into the given array, busiest first. Trees with no
+	 * choppers are never listed. Only visits the listed trees and the counts between them
+	 *
+	 * @return number of handles written
+	 */
+	int getTopTrees(int[] trees)
+	{
+		int size = 0;
+		for (int count = highestCount; count > 0 && size < trees.length; count--)
+		{
+			for (int tree = countFirstTree[count]; tree != NO_TREE && size < trees.length; tree = treeNextRanked[tree])
+			{
+				trees[size++] = tree;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the highest count of any forestry tree, or 0 if none are being chopped
+	 */
+	int getHighestCount()
+	{
+		return highestCount;
+	}
+
+	int getTreeObjectId(int handle)
+	{
+		return treeObjectIds[handle];
+	}
+
+	/**
+	 * @return the packed location of the tree's south west tile
+	 */
+	int getTreeLocation(int handle)
+	{
+		return packLocation(treeMinX[handle], treeMinY[handle], treePlanes[handle]);
+	}
+
+	boolean isForestryTree(int handle)
+	{
+		return treeForestry[handle];
+	}
+
+	/**
+	 * @return one past the highest handle in use, for iterating over every tree
+	 */
+	int getTreeCapacity()
+	{
+		return treeCapacity;
+	}
+
+	int getTreeCount()
+	{
+		return treeCount;
+	}
+
+	boolean isPlayerActive(int slot)
+	{
+		return playerActive[slot];
+	}
+
+	int getPlayerTree(int slot)
+	{
+		return playerTrees[slot];
+	}
+
+	/**
+	 * @return the packed location the player was last resolved at
+	 */
+	int getPlayerLocation(int slot)
+	{
+		return playerLocations[slot];
+	}
+
+	/**
+	 * @return the animation the player was last resolved with
+	 */
+	int getPlayerAnimation(int slot)
+	{
+		return playerAnimations[slot];
+	}
+
+	int getPlayerOrientation(int slot)
+	{
+		return playerOrientations[slot];
+	}
+
+	int getChopperCount()
+	{
+		return choppers.size();
+	}
+
+	/**
+	 * Gets the slot of a chopper. Iterate from the end when turning players, since that can remove the current slot
+	 */
+	int getChopperSlot(int index)
+	{
+		return choppers.get(index);
+	}
+
+	private void updateChopper(int slot)
+	{
+		if (playerActive[slot] && (woodcuttingAnimation.test(playerAnimations[slot]) || playerTrees[slot] != NO_TREE))
+		{
+			choppers.add(slot);
+		}
+		else
+		{
+			choppers.remove(slot);
+		}
+	}
+
+	private void link(int slot, int tree)
+	{
+		final int first = treeFirstChopper[tree];
+		playerPrevious[slot] = NO_PLAYER;
+		playerNext[slot] = first;
+		if (first != NO_PLAYER)
+		{
+			playerPrevious[first] = slot;
+		}
+		treeFirstChopper[tree] = slot;
+		playerTrees[slot] = tree;
+		setCount(tree, treeCounts[tree] + 1);
+		markChanged(tree);
+	}
+
+	private void unlink(int slot)
+	{
+		final int tree = playerTrees[slot];
+		final int previous = playerPrevious[slot];
+		final int next = playerNext[slot];
+		if (previous != NO_PLAYER)
+		{
+			playerNext[previous] = next;
+		}
+		else
+		{
+			treeFirstChopper[tree] = next;
+		}
+		if (next != NO_PLAYER)
+		{
+			playerPrevious[next] = previous;
+		}
+		playerTrees[slot] = NO_TREE;
+		setCount(tree, Math.max(0, treeCounts[tree] - 1));
+		markChanged(tree);
+	}
+
+	/**
+	 * Changes a tree's count, moving it to its new place in the ranking if it is a forestry tree
+	 */
+	private void setCount(int tree, int count)
+	{
+		final int previous = treeCounts[tree];
+		if (previous == count)
+		{
+			return;
+		}
+
+		treeCounts[tree] = count;
+		if (!treeForestry[tree])
+		{
+			return;
+		}
+		if (previous > 0)
+		{
+			removeRanked(tree, Math.min(previous, MAX_PLAYERS));
+		}
+		if (count > 0)
+		{
+			addRanked(tree, Math.min(count, MAX_PLAYERS));
+		}
+
+		// Only a decrease can empty the highest bucket. Walking down is bounded by the size of the decrease, which is a
+		// single bucket except when a busy tree despawns
+		if (count < previous)
+		{
+			while (highestCount > 0 && countFirstTree[highestCount] == NO_TREE)
+			{
+				highestCount--;
+			}
+		}
+	}
+
+	private void addRanked(int tree, int bucket)
+	{
+		final int first = countFirstTree[bucket];
+		treePreviousRanked[tree] = NO_TREE;
+		treeNextRanked[tree] = first;
+		if (first != NO_TREE)
+		{
+			treePreviousRanked[first] = tree;
+		}
+		countFirstTree[bucket] = tree;
+		highestCount = Math.max(highestCount, bucket);
+	}
+
+	private void removeRanked(int tree, int bucket)
+	{
+		final int previous = treePreviousRanked[tree];
+		final int next = treeNextRanked[tree];
+		if (previous != NO_TREE)
+		{
+			treeNextRanked[previous] = next;
+		}
+		else
+		{
+			countFirstTree[bucket] = next;
+		}
+		if (next != NO_TREE)
+		{
+			treePreviousRanked[next] = previous;
+		}
+	}
+
+	private void clearRanking()
+	{
+		Arrays.fill(countFirstTree, NO_TREE);
+		highestCount = 0;
+	}
+
+	private void markChanged(int tree)
+	{
+		if (!treeChanged[tree])
+		{
+			treeChanged[tree] = true;
+			changedTrees[changedTreeCount++] = tree;
+		}
+	}
+
+	private void clearChangedTrees()
+	{
+		for (int i = 0; i < changedTreeCount; i++)
+		{
+			treeChanged[changedTrees[i]] = false;
+		}
+		changedTreeCount = 0;
+	}
+
+	/**
+	 * Adds the tree to the tile grid and the cell index relative to the current scene base
+	 */
+	private void placeTree(int handle)
+	{
+		grid.fill(treePlanes[handle], treeMinX[handle] - baseX, treeMinY[handle] - baseY,
+			treeMaxX[handle] - baseX, treeMaxY[handle] - baseY, handle);
+		cells.add(handle, treePlanes[handle], treeMinX[handle] - baseX, treeMinY[handle] - baseY);
+	}
+
+	/**
+	 * @return Chebyshev distance in tiles from the tile to the nearest tile of the tree's footprint, 0 if it is on it
+	 */
+	private int distanceTo(int handle, int x, int y)
+	{
+		final int dx = Math.max(Math.max(treeMinX[handle] - x, x - treeMaxX[handle]), 0);
+		final int dy = Math.max(Math.max(treeMinY[handle] - y, y - treeMaxY[handle]), 0);
+		return Math.max(dx, dy);
+	}
+
+	private int allocateTreeHandle()
+	{
+		if (freeTreeHandleCount > 0)
+		{
+			return freeTreeHandles[--freeTreeHandleCount];
+		}
+
+		if (treeCapacity == treeActive.length)
+		{
+			growTrees(treeActive.length * 2);
+		}
+		return treeCapacity++;
+	}
+
+	private void growTrees(int capacity)
+	{
+		treeActive = Arrays.copyOf(treeActive, capacity);
+		treeObjectIds = Arrays.copyOf(treeObjectIds, capacity);
+		treeForestry = Arrays.copyOf(treeForestry, capacity);
+		treePlanes = Arrays.copyOf(treePlanes, capacity);
+		treeMinX = Arrays.copyOf(treeMinX, capacity);
+		treeMinY = Arrays.copyOf(treeMinY, capacity);
+		treeMaxX = Arrays.copyOf(treeMaxX, capacity);
+		treeMaxY = Arrays.copyOf(treeMaxY, capacity);
+		treeCounts = Arrays.copyOf(treeCounts, capacity);
+		final int previousCapacity = treeFirstChopper.length;
+		treeFirstChopper = Arrays.copyOf(treeFirstChopper, capacity);
+		Arrays.fill(treeFirstChopper, previousCapacity, capacity, NO_PLAYER);
+		changedTrees = Arrays.copyOf(changedTrees, capacity);
+		treeNextRanked = Arrays.copyOf(treeNextRanked, capacity);
+		treePreviousRanked = Arrays.copyOf(treePreviousRanked, capacity);
+		treeChanged = Arrays.copyOf(treeChanged, capacity);
+		treeStale = Arrays.copyOf(treeStale, capacity);
+		cells.grow(capacity);
+		freeTreeHandles = Arrays.copyOf(freeTreeHandles, capacity);
+	}
+}
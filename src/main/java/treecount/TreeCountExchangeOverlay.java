@@ -0,0 +1,55 @@
+package treecount;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import javax.inject.Inject;
+import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+import net.runelite.client.util.Text;
+
+/**
+ * Panel comparing the worlds of the other clients on this machine, showing each one's busiest forestry tree followed
+ * by the total number of choppers on its shared trees
+ */
+public class TreeCountExchangeOverlay extends OverlayPanel
+{
+	private final TreeCountPlugin plugin;
+	private final ChopperCountExchange exchange;
+
+	@Inject
+	private TreeCountExchangeOverlay(TreeCountPlugin plugin, ChopperCountExchange exchange)
+	{
+		super(plugin);
+		this.plugin = plugin;
+		this.exchange = exchange;
+		setPosition(OverlayPosition.TOP_LEFT);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		if (!plugin.getSettings().shareCounts || exchange.getPeerCount() == 0)
+		{
+			return null;
+		}
+
+		panelComponent.getChildren().add(TitleComponent.builder()
+			.text("Other clients")
+			.build());
+
+		for (int peer = 0; peer < exchange.getPeerCount(); peer++)
+		{
+			final Tree tree = Tree.findTree(exchange.getPeerBestObjectId(peer));
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left("W" + exchange.getPeerWorld(peer))
+				.right(tree != null
+					? String.format("%s %d (%d)", Text.titleCase(tree), exchange.getPeerBestCount(peer), exchange.getPeerChoppers(peer))
+					: "-")
+				.build());
+		}
+
+		return super.render(graphics);
+	}
+}
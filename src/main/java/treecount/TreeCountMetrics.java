@@ -0,0 +1,94 @@
+package treecount;
+
+import javax.inject.Singleton;
+import lombok.Getter;
+
+/**
+ * Latency histograms for the plugin's handlers and the overlay. Timing is skipped entirely while disabled, so the
+ * probes cost a field read when the debug panel is not shown.
+ */
+@Singleton
+class TreeCountMetrics
+{
+	enum Probe
+	{
+		GAME_TICK("Game tick"),
+		OBJECT_SPAWNED("Object spawned"),
+		SCENE_SCAN("Scene scan"),
+		ANIMATION_CHANGED("Animation changed"),
+		RESOLVE_PLAYER("Resolve player"),
+		OVERLAY_RENDER("Overlay render");
+
+		@Getter
+		private final String displayName;
+
+		Probe(String displayName)
+		{
+			this.displayName = displayName;
+		}
+	}
+
+	private final LatencyHistogram[] histograms = new LatencyHistogram[Probe.values().length];
+	@Getter
+	private boolean enabled;
+
+	TreeCountMetrics()
+	{
+		for (int i = 0; i < histograms.length; i++)
+		{
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Starts or stops timing, clearing what was recorded before when starting
+	 */
+	void setEnabled(boolean enabled)
+	{
+		if (enabled && !this.enabled)
+		{
+			for (LatencyHistogram histogram : histograms)
+			{
+				histogram.reset();
+			}
+		}
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return start time to pass to {@link #stop(Probe, long)}
+	 */
+	long start()
+	{
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	void stop(Probe probe, long start)
+	{
+		if (enabled && start != 0)
+		{
+			histograms[probe.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Closes the current tick's event counts, called at the end of every game tick
+	 */
+	void endTick()
+	{
+		if (!enabled)
+		{
+			return;
+		}
+
+		for (LatencyHistogram histogram : histograms)
+		{
+			histogram.endTick();
+		}
+	}
+
+	LatencyHistogram getHistogram(Probe probe)
+	{
+		return histograms[probe.ordinal()];
+	}
+}
@@ -0,0 +1,65 @@
+package treecount;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import javax.inject.Inject;
+import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+/**
+ * Debug panel showing the latency of each of the plugin's probes as p50 / p99 / max in microseconds, followed by the
+ * number of times it ran during the last game tick
+ */
+public class TreeCountMetricsOverlay extends OverlayPanel
+{
+	private final TreeCountPlugin plugin;
+	private final TreeCountMetrics metrics;
+
+	@Inject
+	private TreeCountMetricsOverlay(TreeCountPlugin plugin, TreeCountMetrics metrics)
+	{
+		super(plugin);
+		this.plugin = plugin;
+		this.metrics = metrics;
+		setPosition(OverlayPosition.TOP_LEFT);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		if (!plugin.getSettings().showMetrics || !metrics.isEnabled())
+		{
+			return null;
+		}
+
+		panelComponent.getChildren().add(TitleComponent.builder()
+			.text("Tree Count latency (us)")
+			.build());
+		panelComponent.getChildren().add(LineComponent.builder()
+			.left("")
+			.right("p50 / p99 / max, per tick")
+			.build());
+
+		for (TreeCountMetrics.Probe probe : TreeCountMetrics.Probe.values())
+		{
+			final LatencyHistogram histogram = metrics.getHistogram(probe);
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left(probe.getDisplayName())
+				.right(String.format("%s / %s / %s, %d",
+					micros(histogram.getPercentile(0.5)),
+					micros(histogram.getPercentile(0.99)),
+					micros(histogram.getMax()),
+					histogram.getCountLastTick()))
+				.build());
+		}
+
+		return super.render(graphics);
+	}
+
+	private static String micros(long nanos)
+	{
+		return String.format("%.1f", nanos / 1000.0);
+	}
+}
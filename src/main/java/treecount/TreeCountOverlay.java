@@ -1,49 +1,62 @@
 package treecount;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
 import java.awt.Shape;
-import java.awt.Stroke;
+import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
-import java.util.WeakHashMap;
-import java.util.concurrent.ThreadLocalRandom;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
 import net.runelite.api.GameObject;
 import net.runelite.api.Perspective;
-import net.runelite.api.Player;
 import net.runelite.api.Point;
 import net.runelite.api.coords.Angle;
 import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.geometry.SimplePolygon;
 import net.runelite.client.ui.overlay.Overlay;
 import net.runelite.client.ui.overlay.OverlayLayer;
 import net.runelite.client.ui.overlay.OverlayPosition;
 import net.runelite.client.ui.overlay.OverlayUtil;
-import net.runelite.client.util.ColorUtil;
 
 @Slf4j
 public class TreeCountOverlay extends Overlay
 {
 	public static final Color BLANK_COLOR = new Color(0, true);
+	private static final int CAMERA_STATE_SIZE = 10;
+	// Height above the ground trees are labelled at when too far away to use the centroid of their hull
+	private static final int LABEL_HEIGHT = 150;
+	// Trees whose anchor is this many pixels outside the viewport are still drawn, as their hull may reach into it
+	private static final int VIEWPORT_MARGIN = 64;
+	// Spreads the debug tile colors of consecutive tree handles around the hue circle
+	private static final float GOLDEN_RATIO_CONJUGATE = 0.618034f;
 	private final TreeCountPlugin plugin;
-	private final TreeCountConfig config;
 	private final Client client;
+	private final TreeCountMetrics metrics;
+
+	// Projected hulls and label points of trees, only valid for the camera and tree set they were computed with
+	private final Map<GameObject, TreeProjection> projectionCache = new HashMap<>();
+	private final int[] cachedCameraState = new int[CAMERA_STATE_SIZE];
+	private final int[] currentCameraState = new int[CAMERA_STATE_SIZE];
+	// Trees to draw this frame, as distance in tiles in the high half and snapshot index in the low half so sorting puts the nearest first
+	private long[] candidates = new long[256];
+	private final ChopperCountStyle style = new ChopperCountStyle();
+	private int cachedTreeSetVersion = -1;
 
 	@Inject
-	private TreeCountOverlay(TreeCountPlugin plugin, TreeCountConfig config, Client client)
+	private TreeCountOverlay(TreeCountPlugin plugin, Client client, TreeCountMetrics metrics)
 	{
 		this.plugin = plugin;
-		this.config = config;
+		this.metrics = metrics;
 		this.client = client;
 		setLayer(OverlayLayer.ABOVE_SCENE);
 		setPosition(OverlayPosition.DYNAMIC);
@@ -52,38 +65,209 @@ public class TreeCountOverlay extends Overlay
 	@Override
 	public Dimension render(Graphics2D graphics)
 	{
-		if (plugin.isRegionInWoodcuttingGuild(client.getLocalPlayer().getWorldLocation().getRegionID()) && !config.enableWCGuild())
+		final long start = metrics.start();
+		renderTrees(graphics);
+		metrics.stop(TreeCountMetrics.Probe.OVERLAY_RENDER, start);
+		return null;
+	}
+
+	private void renderTrees(Graphics2D graphics)
+	{
+		final TreeCountSettings settings = plugin.getSettings();
+		if (plugin.isRegionIgnored())
 		{
-			return null;
+			return;
 		}
 
-		renderDebugOverlay(graphics);
+		// Read the snapshot once so that the whole frame is drawn from the same tick
+		final TreeCountSnapshot snapshot = plugin.getSnapshot();
+		validateProjectionCache(snapshot);
+		renderDebugOverlay(graphics, settings, snapshot);
+
+		final LocalPoint playerLocation = client.getLocalPlayer().getLocalLocation();
+		final int playerX = client.getBaseX() + playerLocation.getSceneX();
+		final int playerY = client.getBaseY() + playerLocation.getSceneY();
+		final int drawDistance = settings.drawDistance;
 
-		plugin.getTreeMap().forEach((gameObject, choppers) ->
+		// Pick the counted trees within the draw distance before doing any projection work
+		if (candidates.length < snapshot.getSize())
+		{
+			candidates = new long[snapshot.getSize()];
+		}
+		int candidateCount = 0;
+		for (int index = 0; index < snapshot.getSize(); index++)
 		{
-			if (choppers == null || choppers <= 0 || Tree.findForestryTree(gameObject.getId()) == null)
+			if (snapshot.getCount(index) <= 0 || !snapshot.isForestryTree(index))
+			{
+				continue;
+			}
+
+			final int location = snapshot.getLocation(index);
+			final int distance = Math.max(Math.abs(TreeCountEngine.locationX(location) - playerX), Math.abs(TreeCountEngine.locationY(location) - playerY));
+			if (distance <= drawDistance)
+			{
+				candidates[candidateCount++] = ((long) distance << 32) | index;
+			}
+		}
+
+		// Only label the nearest trees when there are more than the cap
+		if (candidateCount > settings.maxLabels)
+		{
+			Arrays.sort(candidates, 0, candidateCount);
+			candidateCount = settings.maxLabels;
+		}
+
+		final int outlineDistance = settings.outlineDistance;
+		for (int i = 0; i < candidateCount; i++)
+		{
+			final int index = (int) candidates[i];
+			final int distance = (int) (candidates[i] >>> 32);
+			final int choppers = snapshot.getCount(index);
+			final GameObject gameObject = snapshot.getObject(index);
+
+			final TreeProjection projection = getProjection(gameObject);
+			if (!isInViewport(projection.anchor))
+			{
+				continue;
+			}
+
+			if (distance > outlineDistance)
+			{
+				// Far away trees are only labelled, which skips computing their hull
+				drawCount(graphics, projection.anchor, choppers);
+				continue;
+			}
+
+			projection.computeHull(gameObject);
+			if (projection.hull == null)
+			{
+				continue;
+			}
+
+			if (settings.renderTreeHull)
+			{
+				OverlayUtil.renderPolygon(graphics, projection.hull, style.getOutlineColor(choppers), BLANK_COLOR, style.getOutlineStroke(choppers));
+			}
+
+			if (projection.labelPoint != null)
+			{
+				drawCount(graphics, projection.labelPoint, choppers);
+			}
+		}
+	}
+
+	/**
+	 * Recomputes the colors the counts are drawn with, called on start up and when the color config changes
+	 */
+	void updateStyle()
+	{
+		final TreeCountSettings settings = plugin.getSettings();
+		style.update(settings.dynamicColors, settings.textColor);
+	}
+
+	private void drawCount(Graphics2D graphics, Point point, int choppers)
+	{
+		if (!style.drawCount(graphics, point.getX(), point.getY(), choppers))
+		{
+			drawTextCentered(graphics, point, String.valueOf(choppers), style.getTextColor(choppers));
+		}
+	}
+
+	/**
+	 * @return whether the point is on, or close enough to be partially on, the viewport. False for points behind the camera
+	 */
+	private boolean isInViewport(Point point)
+	{
+		if (point == null)
+		{
+			return false;
+		}
+		final int x = point.getX() - client.getViewportXOffset();
+		final int y = point.getY() - client.getViewportYOffset();
+		return x >= -VIEWPORT_MARGIN && x <= client.getViewportWidth() + VIEWPORT_MARGIN
+			&& y >= -VIEWPORT_MARGIN && y <= client.getViewportHeight() + VIEWPORT_MARGIN;
+	}
+
+	/**
+	 * Clears the cached tree projections if the camera, viewport or set of trees changed since they were computed
+	 */
+	private void validateProjectionCache(TreeCountSnapshot snapshot)
+	{
+		currentCameraState[0] = client.getCameraX();
+		currentCameraState[1] = client.getCameraY();
+		currentCameraState[2] = client.getCameraZ();
+		currentCameraState[3] = client.getCameraPitch();
+		currentCameraState[4] = client.getCameraYaw();
+		currentCameraState[5] = client.getScale();
+		currentCameraState[6] = client.getViewportWidth();
+		currentCameraState[7] = client.getViewportHeight();
+		currentCameraState[8] = client.getViewportXOffset();
+		currentCameraState[9] = client.getViewportYOffset();
+
+		final int treeSetVersion = snapshot.getVersion();
+		if (treeSetVersion != cachedTreeSetVersion || !Arrays.equals(currentCameraState, cachedCameraState))
+		{
+			projectionCache.clear();
+			System.arraycopy(currentCameraState, 0, cachedCameraState, 0, CAMERA_STATE_SIZE);
+			cachedTreeSetVersion = treeSetVersion;
+		}
+	}
+
+	private TreeProjection getProjection(GameObject gameObject)
+	{
+		TreeProjection projection = projectionCache.get(gameObject);
+		if (projection == null)
+		{
+			projection = new TreeProjection(Perspective.localToCanvas(client, gameObject.getLocalLocation(), gameObject.getPlane(), LABEL_HEIGHT));
+			projectionCache.put(gameObject, projection);
+		}
+		return projection;
+	}
+
+	private static class TreeProjection
+	{
+		// Canvas point above the tree's center, used for culling and as the label of trees drawn without their hull
+		private final Point anchor;
+		// Stays null while the model isn't ready, in which case it is computed again on the next frame
+		private Shape hull;
+		private Point labelPoint;
+		// Outline of all of the tree's tiles, only computed while the tree tiles debug overlay is shown
+		private Path2D tilePath;
+		private Color tileColor;
+
+		private TreeProjection(Point anchor)
+		{
+			this.anchor = anchor;
+		}
+
+		private void computeHull(GameObject gameObject)
+		{
+			if (hull != null)
 			{
 				return;
 			}
+			hull = gameObject.getConvexHull();
+			labelPoint = hull instanceof SimplePolygon ? centroidOfPolygon((SimplePolygon) hull).orElse(null) : null;
+		}
 
-			final Color colorForChoppers = getColorForChoppers(choppers);
-			if (config.renderTreeHull())
+		private void computeTilePath(Client client, List<WorldPoint> tiles, int handle)
+		{
+			if (tilePath != null)
 			{
-				if (choppers < 10)
-				{
-					drawOutline(graphics, gameObject, colorForChoppers, 0x50, 1f);
-				}
-				else
+				return;
+			}
+			tilePath = new Path2D.Float();
+			for (WorldPoint tile : tiles)
+			{
+				final LocalPoint localPoint = LocalPoint.fromWorld(client, tile);
+				final Polygon poly = localPoint != null ? Perspective.getCanvasTilePoly(client, localPoint) : null;
+				if (poly != null)
 				{
-					drawOutline(graphics, gameObject, colorForChoppers, 0xB0, 2f);
+					tilePath.append(poly, false);
 				}
 			}
-
-			centroidOfObjectHull(gameObject)
-				.ifPresent(point -> drawTextCentered(graphics, point, String.valueOf(choppers), colorForChoppers));
-		});
-
-		return null;
+			tileColor = Color.getHSBColor((handle * GOLDEN_RATIO_CONJUGATE) % 1f, 1f, 1f);
+		}
 	}
 
 	private static void drawTextCentered(Graphics2D graphics, Point point, String text, Color color)
@@ -95,19 +279,8 @@ public class TreeCountOverlay extends Overlay
 		OverlayUtil.renderTextLocation(graphics, new Point(x, y), text, color);
 	}
 
-	private static Optional<Point> centroidOfObjectHull(GameObject gameObject)
-	{
-		final Shape convexHull = gameObject.getConvexHull();
-		if (!(convexHull instanceof SimplePolygon))
-		{
-			return Optional.empty();
-		}
-
-		return centroidOfPolygon((SimplePolygon) convexHull);
-	}
-
 	// https://en.wikipedia.org/wiki/Centroid#Of_a_polygon
-	private static Optional<Point> centroidOfPolygon(SimplePolygon poly)
+	static Optional<Point> centroidOfPolygon(SimplePolygon poly)
 	{
 		long xSum = 0, ySum = 0, areaSum = 0;
 		for (int i = 0; i < poly.size(); i++)
@@ -132,101 +305,55 @@ public class TreeCountOverlay extends Overlay
 		return Optional.of(new Point((int) centroidX, (int) centroidY));
 	}
 
-	private static void drawOutline(Graphics2D graphics,
-									GameObject gameObject,
-									Color colorForChoppers,
-									int alpha,
-									float strokeWidth)
-	{
-		Color outlineColor = ColorUtil.colorWithAlpha(colorForChoppers, alpha);
-		Stroke stroke = new BasicStroke(strokeWidth);
-		OverlayUtil.renderPolygon(graphics, gameObject.getConvexHull(), outlineColor, BLANK_COLOR, stroke);
-	}
-
-	private Color getColorForChoppers(int choppers)
-	{
-        if(config.dynamicColors()) {
-            return getDynamicColor(choppers);
-        } else {
-            return config.textColor();
-        }
-	}
-
-    private static Color getDynamicColor(int choppers)
-    {
-        final float percent = Math.min(1f, choppers / 10f);
-        final float hue1 = rgbToHsbArray(Color.RED)[0];
-        final float hue2 = rgbToHsbArray(Color.GREEN)[0];
-        final float lerpedHue = hue1 + (hue2 - hue1) * percent;
-        return Color.getHSBColor(lerpedHue, 1f, 1f);
-    }
-
-	private static float[] rgbToHsbArray(Color color)
-	{
-		return Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), null);
-	}
-
-	private static final Random random = ThreadLocalRandom.current();
-
-	private static final Map<GameObject, Color> colorMap = new WeakHashMap<>();
-
-	private void renderDebugOverlay(Graphics2D graphics)
+	private void renderDebugOverlay(Graphics2D graphics, TreeCountSettings settings, TreeCountSnapshot snapshot)
 	{
-		if (config.renderFacingTree())
+		if (settings.renderFacingTree)
 		{
-			renderFacingTree(graphics);
+			renderFacingTree(graphics, snapshot);
 		}
 
-		if (config.renderTreeTiles())
+		if (settings.renderTreeTiles)
 		{
-			renderTreeTiles(graphics);
+			renderTreeTiles(graphics, snapshot);
 		}
 
-		if (config.renderPlayerOrientation())
+		if (settings.renderPlayerOrientation)
 		{
 			renderPlayerOrientation(graphics);
 		}
 
-		if (config.renderExpectedChoppers())
+		if (settings.renderExpectedChoppers)
 		{
-			renderPlayersAdjacentToTrees(graphics);
+			renderPlayersAdjacentToTrees(graphics, snapshot);
 		}
 	}
 
-	private void renderFacingTree(Graphics2D graphics)
+	private void renderFacingTree(Graphics2D graphics, TreeCountSnapshot snapshot)
 	{
-		if (client.getLocalPlayer() != null)
+		final GameObject tree = snapshot.getFacingTree();
+		if (tree != null)
 		{
-			GameObject tree = plugin.findClosestFacingTree(client.getLocalPlayer());
-			if (tree != null)
-			{
-				OverlayUtil.renderTileOverlay(graphics, tree, "", Color.GREEN);
-			}
+			OverlayUtil.renderTileOverlay(graphics, tree, "", Color.GREEN);
 		}
 	}
 
-	private void renderTreeTiles(Graphics2D graphics)
+	/**
+	 * Draws each tree's tiles as one cached path, which is only projected again when the camera or the trees change
+	 */
+	private void renderTreeTiles(Graphics2D graphics, TreeCountSnapshot snapshot)
 	{
-		plugin.getTreeTileMap().forEach((tree, tiles) ->
+		for (int index = 0; index < snapshot.getSize(); index++)
+		{
+			final List<WorldPoint> tiles = snapshot.getTiles(index);
+			if (tiles == null)
 			{
-				final Color color = colorMap.computeIfAbsent(tree, (unused) -> Color.getHSBColor(random.nextFloat(), 1f, 1f));
-				tiles.forEach(worldPoint ->
-					{
-						LocalPoint localPoint = LocalPoint.fromWorld(client, worldPoint);
-						if (localPoint == null)
-						{
-							return;
-						}
-						Polygon poly = Perspective.getCanvasTilePoly(client, localPoint);
-						if (poly == null)
-						{
-							return;
-						}
-						OverlayUtil.renderPolygon(graphics, poly, color);
-					}
-				);
+				continue;
 			}
-		);
+
+			final TreeProjection projection = getProjection(snapshot.getObject(index));
+			projection.computeTilePath(client, tiles, snapshot.getHandle(index));
+			OverlayUtil.renderPolygon(graphics, projection.tilePath, projection.tileColor);
+		}
 	}
 
 	private void renderPlayerOrientation(Graphics2D graphics)
@@ -242,28 +369,25 @@ public class TreeCountOverlay extends Overlay
 		});
 	}
 
-	private void renderPlayersAdjacentToTrees(Graphics2D graphics)
+	private void renderPlayersAdjacentToTrees(Graphics2D graphics, TreeCountSnapshot snapshot)
 	{
-		Map<GameObject, Integer> expectedChoppers = new HashMap<>();
-		for (Player player : client.getPlayers())
+		for (int index = 0; index < snapshot.getSize(); index++)
 		{
-			if (player.equals(client.getLocalPlayer()) && !config.includeSelf())
+			final int expectedCount = snapshot.getExpectedChoppers(index);
+			if (expectedCount <= 0)
 			{
 				continue;
 			}
-			plugin.getAdjacentTrees(player, false).forEach(tree ->
+
+			final GameObject tree = snapshot.getObject(index);
+
+			final TreeProjection projection = getProjection(tree);
+			projection.computeHull(tree);
+			final Point point = projection.labelPoint;
+			if (point != null)
 			{
-				if (plugin.isWoodcutting(player))
-				{
-					expectedChoppers.put(tree, expectedChoppers.getOrDefault(tree, 0) + 1);
-				}
-			});
+				drawTextCentered(graphics, new Point(point.getX(), point.getY() + 15), "Expected: " + expectedCount, style.getTextColor(expectedCount));
+			}
 		}
-
-		expectedChoppers.forEach((tree, finalExpectedCount) ->
-		{
-			final Color colorForChoppers = getColorForChoppers(finalExpectedCount);
-			centroidOfObjectHull(tree).ifPresent(point -> drawTextCentered(graphics, new Point(point.getX(), point.getY() + 15), "Expected: " + finalExpectedCount, colorForChoppers));
-		});
 	}
 }
@@ -2,25 +2,27 @@ package treecount;
 
 import com.google.inject.Provides;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import javax.inject.Inject;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Actor;
-import net.runelite.api.AnimationID;
 import net.runelite.api.Client;
 import net.runelite.api.GameObject;
 import net.runelite.api.GameState;
 import net.runelite.api.Player;
 import net.runelite.api.Point;
-import net.runelite.api.coords.Angle;
-import net.runelite.api.coords.Direction;
+import net.runelite.api.Tile;
+import net.runelite.api.coords.LocalPoint;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.AnimationChanged;
 import net.runelite.api.events.GameObjectDespawned;
@@ -44,6 +46,9 @@ import net.runelite.client.ui.overlay.OverlayManager;
 )
 public class TreeCountPlugin extends Plugin
 {
+	// How often the local tree definitions are checked for changes
+	private static final int DEFINITIONS_CHECK_SECONDS = 5;
+
 	@Inject
 	private Client client;
 
@@ -56,19 +61,85 @@ public class TreeCountPlugin extends Plugin
 	@Inject
 	private TreeCountOverlay overlay;
 
+	@Inject
+	private TreeCountMetricsOverlay metricsOverlay;
+
+	@Inject
+	private TreeCountMetrics metrics;
+
+	@Inject
+	private EventRecorder recorder;
+
+	@Inject
+	private ChopperCountHistory history;
+
+	@Inject
+	private ChopperCountExchange exchange;
+
+	@Inject
+	private TreeCountExchangeOverlay exchangeOverlay;
+
+	@Inject
+	private TreeCountRankingOverlay rankingOverlay;
+
+	@Inject
+	private ScheduledExecutorService executor;
+
+	// Counting state lives in the engine, the plugin only maps client objects to engine handles and slots
 	@Getter
-	private final Map<GameObject, Integer> treeMap = new HashMap<>();
-	private final Map<Player, GameObject> playerMap = new HashMap<>();
+	private final TreeCountEngine engine = new TreeCountEngine(TreeCountPlugin::isWoodcuttingAnimation);
+	// Tree objects indexed by their engine handle
+	private GameObject[] treeObjects = new GameObject[256];
 	@Getter
 	private final Map<GameObject, List<WorldPoint>> treeTileMap = new HashMap<>();
-	private final Map<WorldPoint, GameObject> tileTreeMap = new HashMap<>();
-	// This map is used to track player orientation changes for only players that are chopping trees
-	private final Map<Player, Integer> playerOrientationMap = new ConcurrentHashMap<>();
+	// Tracked players indexed by slot, used to poll choppers' orientation and to tell a new player in a reused slot apart
+	private final Player[] trackedPlayers = new Player[TreeCountEngine.MAX_PLAYERS];
+	// Slots of tracked players that changed during the current tick, resolved against the engine once per tick
+	private final SlotList dirtyPlayers = new SlotList(TreeCountEngine.MAX_PLAYERS);
+	// Woodcutting players next to each tree regardless of orientation, indexed by handle, for the expected choppers debug overlay
+	private int[] expectedChoppers = new int[256];
+	private final int[] adjacentTrees = new int[4];
+	// Trees each tracked player counts towards in expectedChoppers, four per slot, so that they can be taken back out
+	// when the player is resolved again instead of recounting every player every tick
+	private final int[] playerExpectedTrees = new int[TreeCountEngine.MAX_PLAYERS * 4];
+	private final int[] playerExpectedTreeCounts = new int[TreeCountEngine.MAX_PLAYERS];
+	// Tree set version expectedChoppers was rebuilt at, the handles it holds are stale once the trees change
+	private int expectedChoppersVersion = -1;
+
+	// Incremented whenever a tree is added or removed so that cached tree projections can be invalidated
+	private int treeSetVersion;
+	// Copy of the config read by the event handlers and overlays, replaced whenever the config changes
+	@Getter
+	private volatile TreeCountSettings settings;
+
+	// Trees as of the end of the last tick, the only state the overlay renders from
+	@Getter
+	private volatile TreeCountSnapshot snapshot = TreeCountSnapshot.EMPTY;
+	// Filled in turn by publishSnapshot, the one that is not published is overwritten on the next tick
+	private final TreeCountSnapshot[] snapshots = {new TreeCountSnapshot(), new TreeCountSnapshot()};
+	private int nextSnapshot;
 
 	private int previousPlane;
 
 	private boolean firstRun;
 
+	// Set from the start of a scene load until the first tick after it, during which spawns are left to scanScene
+	private boolean sceneLoading;
+
+	// Last modification time of the local tree definitions when they were loaded, 0 if there were none. Only used by
+	// the background check
+	private long definitionsModified;
+	private ScheduledFuture<?> definitionsCheck;
+	// Set by the background check when it swapped in new definitions, the trees are re-indexed on the next tick
+	private volatile boolean definitionsChanged;
+	// Set when the region settings change, the trees and players in newly ignored regions are dropped on the next tick
+	private volatile boolean regionsChanged;
+	// Set when including the local player is toggled, the local player is tracked or dropped on the next tick
+	private volatile boolean includeSelfChanged;
+	// Whether the local player was in an ignored region as of the last tick, read by the overlay
+	@Getter
+	private volatile boolean regionIgnored;
+
 	@Provides
 	TreeCountConfig provideConfig(ConfigManager configManager)
 	{
@@ -78,18 +149,49 @@ public class TreeCountPlugin extends Plugin
 	@Override
 	protected void startUp()
 	{
+		settings = new TreeCountSettings(config);
+		loadDefinitions();
+		definitionsCheck = executor.scheduleWithFixedDelay(this::checkDefinitions, DEFINITIONS_CHECK_SECONDS, DEFINITIONS_CHECK_SECONDS, TimeUnit.SECONDS);
+		overlay.updateStyle();
 		overlayManager.add(overlay);
+		overlayManager.add(metricsOverlay);
+		overlayManager.add(exchangeOverlay);
+		overlayManager.add(rankingOverlay);
+		metrics.setEnabled(settings.showMetrics);
+		// Pick up the trees of a scene that was loaded before the plugin started on the next tick
+		sceneLoading = true;
+		firstRun = true;
+		if (settings.recordEvents)
+		{
+			recorder.start();
+		}
+		if (settings.recordHistory)
+		{
+			history.start();
+		}
+		if (settings.shareCounts)
+		{
+			exchange.start();
+		}
 	}
 
 	@Override
 	protected void shutDown()
 	{
+		if (definitionsCheck != null)
+		{
+			definitionsCheck.cancel(false);
+			definitionsCheck = null;
+		}
 		overlayManager.remove(overlay);
-		treeMap.clear();
-		treeTileMap.clear();
-		tileTreeMap.clear();
-		playerMap.clear();
-		playerOrientationMap.clear();
+		overlayManager.remove(metricsOverlay);
+		overlayManager.remove(exchangeOverlay);
+		overlayManager.remove(rankingOverlay);
+		metrics.setEnabled(false);
+		recorder.stop();
+		history.stop(executor);
+		exchange.stop();
+		clearState();
 		previousPlane = -1;
 		firstRun = true;
 	}
@@ -97,26 +199,103 @@ public class TreeCountPlugin extends Plugin
 	@Subscribe
 	public void onConfigChanged(ConfigChanged changedConfig)
 	{
-		if (changedConfig.getKey().equals("includeSelf"))
+		if (!changedConfig.getGroup().equals(TreeCountConfig.GROUP))
+		{
+			return;
+		}
+
+		settings = new TreeCountSettings(config);
+		if (changedConfig.getKey().equals("ignoredRegions") || changedConfig.getKey().equals("trackedRegions")
+			|| changedConfig.getKey().equals("enableWCGuild"))
+		{
+			regionsChanged = true;
+		}
+		else if (changedConfig.getKey().equals("recordEvents"))
 		{
 			if (Boolean.valueOf(changedConfig.getNewValue()))
 			{
-				if (isWoodcutting(client.getLocalPlayer()))
-				{
-					addToTreeFocusedMaps(client.getLocalPlayer());
-				}
+				recorder.start();
 			}
 			else
 			{
-				removeFromTreeMaps(client.getLocalPlayer());
+				recorder.stop();
 			}
 		}
+		else if (changedConfig.getKey().equals("dynamicColors") || changedConfig.getKey().equals("textColor"))
+		{
+			overlay.updateStyle();
+		}
+		else if (changedConfig.getKey().equals("showMetrics"))
+		{
+			metrics.setEnabled(Boolean.valueOf(changedConfig.getNewValue()));
+		}
+		else if (changedConfig.getKey().equals("recordHistory"))
+		{
+			if (Boolean.valueOf(changedConfig.getNewValue()))
+			{
+				history.start();
+			}
+			else
+			{
+				history.stop(executor);
+			}
+		}
+		else if (changedConfig.getKey().equals("shareCounts"))
+		{
+			if (Boolean.valueOf(changedConfig.getNewValue()))
+			{
+				exchange.start();
+			}
+			else
+			{
+				exchange.stop();
+			}
+		}
+		else if (changedConfig.getKey().equals("includeSelf"))
+		{
+			// Config changes are not posted on the client thread, so leave the players to the next tick
+			includeSelfChanged = true;
+		}
 	}
 
 	@Subscribe
 	public void onGameTick(GameTick gameTick)
 	{
-		if (isRegionInWoodcuttingGuild(client.getLocalPlayer().getWorldLocation().getRegionID()) && !config.enableWCGuild())
+		final long start = metrics.start();
+		handleGameTick();
+		metrics.stop(TreeCountMetrics.Probe.GAME_TICK, start);
+		metrics.endTick();
+	}
+
+	private void handleGameTick()
+	{
+		if (recorder.isRecording())
+		{
+			recorder.gameTick();
+		}
+
+		if (definitionsChanged)
+		{
+			definitionsChanged = false;
+			reindexTrees();
+		}
+
+		if (regionsChanged)
+		{
+			regionsChanged = false;
+			pruneIgnoredRegions();
+		}
+
+		if (includeSelfChanged)
+		{
+			includeSelfChanged = false;
+			updateIncludeSelf();
+		}
+
+		final Player localPlayer = client.getLocalPlayer();
+		final LocalPoint localLocation = localPlayer != null ? localPlayer.getLocalLocation() : null;
+		regionIgnored = localLocation != null && isRegionIgnored(getLocation(localLocation));
+		if (regionIgnored)
 		{
 			return;
 		}
@@ -126,47 +305,92 @@ public class TreeCountPlugin extends Plugin
 		if (previousPlane != currentPlane)
 		{
 			// Only clear values because sometimes the trees are still there when changing planes (Top of Seer's Bank)
-			treeMap.replaceAll((k, v) -> 0);
+			engine.clearCounts();
 			previousPlane = currentPlane;
 		}
 
-		if (firstRun)
+		if (sceneLoading)
 		{
-			// Any missing players just in case, although it's not really required. Doesn't hurt since one time operation
-			client.getPlayers().forEach(player -> {
-				if (!player.equals(client.getLocalPlayer()) || config.includeSelf())
+			final long start = metrics.start();
+			scanScene();
+			metrics.stop(TreeCountMetrics.Probe.SCENE_SCAN, start);
+			sceneLoading = false;
+		}
+
+		if (firstRun && engine.sceneLoaded() > 0)
+		{
+			// Drop the trees that left the scene, every tree still in it has spawned again by now
+			for (int handle = 0; handle < treeObjects.length; handle++)
+			{
+				if (treeObjects[handle] != null && !engine.isTree(handle))
 				{
-					playerMap.putIfAbsent(player, null);
-					// Initialize it to -1 because it will be updated when the PlayerOrientationChanged event is fired
-					playerOrientationMap.put(player, -1);
+					treeTileMap.remove(treeObjects[handle]);
+					treeObjects[handle] = null;
 				}
-			});
-			for (Player player : playerMap.keySet())
+			}
+			treeSetVersion++;
+		}
+
+		if (firstRun)
+		{
+			// Any missing players just in case, although it's not really required. Doesn't hurt since one time operation
+			for (Player player : client.getPlayers())
 			{
-				if (isWoodcutting(player) && !treeMap.isEmpty())
+				if (!player.equals(client.getLocalPlayer()) || settings.includeSelf)
 				{
-					addToTreeFocusedMaps(player);
+					markDirty(player);
 				}
 			}
 		}
 
-		// Let's create a PlayerOrientationChanged event for cases when the players shift's orientation while chopping
-		if (!playerOrientationMap.isEmpty())
+		// Poll the orientation of choppers for cases when the player shifts orientation while chopping
+		for (int i = 0; i < engine.getChopperCount(); i++)
 		{
-			for (Map.Entry<Player, Integer> playerOrientationEntry : playerOrientationMap.entrySet())
+			final int slot = engine.getChopperSlot(i);
+			final Player player = trackedPlayers[slot];
+			final int previousOrientation = engine.getPlayerOrientation(slot);
+			final int currentOrientation = player.getOrientation();
+
+			if (currentOrientation != previousOrientation)
 			{
-				Player player = playerOrientationEntry.getKey();
-				int previousOrientation = playerOrientationEntry.getValue();
-				int currentOrientation = player.getOrientation();
+				onPlayerOrientationChanged(player, previousOrientation, currentOrientation);
+			}
+		}
 
-				if (currentOrientation != previousOrientation)
-				{
-					final PlayerOrientationChanged playerOrientationChanged = new PlayerOrientationChanged(player, previousOrientation, currentOrientation);
-					onPlayerOrientationChanged(playerOrientationChanged);
-				}
+		resolveDirtyPlayers();
+
+		if (settings.checkCounts)
+		{
+			final int repaired = engine.reconcileCounts();
+			if (repaired > 0)
+			{
+				log.warn("Corrected the counts of {} trees that drifted from their choppers", repaired);
 			}
 		}
 
+		if (settings.renderExpectedChoppers)
+		{
+			updateExpectedChoppers();
+		}
+		else
+		{
+			expectedChoppersVersion = -1;
+		}
+
+		if (history.isRecording())
+		{
+			history.record(engine, System.currentTimeMillis(), client.getTickCount(), client.getWorld());
+		}
+
+		if (exchange.isRunning())
+		{
+			final long now = System.currentTimeMillis();
+			exchange.publish(engine, now, client.getTickCount(), client.getWorld());
+			exchange.readPeers(now);
+		}
+
+		publishSnapshot();
+
 		if (firstRun)
 		{
 			firstRun = false;
@@ -176,27 +400,107 @@ public class TreeCountPlugin extends Plugin
 	@Subscribe
 	public void onGameObjectSpawned(final GameObjectSpawned event)
 	{
-		// Event runs first upon login
-		GameObject gameObject = event.getGameObject();
+		final long start = metrics.start();
+		handleGameObjectSpawned(event);
+		metrics.stop(TreeCountMetrics.Probe.OBJECT_SPAWNED, start);
+	}
+
+	private void handleGameObjectSpawned(final GameObjectSpawned event)
+	{
+		// Event runs first upon login. Most objects in a scene are not trees, so filter by ID before anything else
+		final GameObject gameObject = event.getGameObject();
+		final Tree tree = Tree.findTree(gameObject.getId());
+		if (tree == null)
+		{
+			return;
+		}
+
+		if (recorder.isRecording())
+		{
+			recorder.objectSpawned(gameObject);
+		}
 
-		if (isRegionInWoodcuttingGuild(gameObject.getWorldLocation().getRegionID()) && !config.enableWCGuild())
+		if (sceneLoading)
 		{
+			// The whole scene is indexed in one pass by scanScene once loading finishes
 			return;
 		}
 
-		Tree tree = Tree.findTree(gameObject.getId());
+		addTree(gameObject, tree);
+	}
+
+	/**
+	 * Indexes every tree in the loaded scene in one pass over its tiles, in place of the spawn events fired while loading
+	 */
+	private void scanScene()
+	{
+		final Tile[][][] tiles = client.getScene().getTiles();
+		for (int plane = 0; plane < tiles.length; plane++)
+		{
+			for (int x = 0; x < tiles[plane].length; x++)
+			{
+				for (int y = 0; y < tiles[plane][x].length; y++)
+				{
+					final Tile tile = tiles[plane][x][y];
+					if (tile == null)
+					{
+						continue;
+					}
+
+					for (GameObject gameObject : tile.getGameObjects())
+					{
+						if (gameObject == null)
+						{
+							continue;
+						}
+
+						final Tree tree = Tree.findTree(gameObject.getId());
+						// Objects larger than a tile are on every tile they cover, so only add them from their south west tile
+						if (tree != null && isSouthWestTile(gameObject, x, y))
+						{
+							addTree(gameObject, tree);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean isSouthWestTile(GameObject gameObject, int sceneX, int sceneY)
+	{
+		final Point min = gameObject.getSceneMinLocation();
+		return min.getX() == sceneX && min.getY() == sceneY;
+	}
+
+	private void addTree(GameObject gameObject, Tree tree)
+	{
+		// log.debug("Tree {} spawned at {}", tree, gameObject.getLocalLocation());
+		final int baseX = client.getBaseX();
+		final int baseY = client.getBaseY();
+		final Point min = gameObject.getSceneMinLocation();
+		final int location = TreeCountEngine.packLocation(baseX + min.getX(), baseY + min.getY(), gameObject.getPlane());
+		if (isRegionIgnored(location))
+		{
+			return;
+		}
 
-		if (tree != null)
+		final Point max = gameObject.getSceneMaxLocation();
+		engine.setSceneBase(baseX, baseY);
+		final int handle = engine.treeSpawned(gameObject.getId(), tree.isProvidesForestryBoost(), gameObject.getPlane(),
+			baseX + min.getX(), baseY + min.getY(), baseX + max.getX(), baseY + max.getY());
+		if (handle >= treeObjects.length)
 		{
-			// log.debug("Tree {} spawned at {}", tree, gameObject.getLocalLocation());
-			treeMap.put(gameObject, 0);
-			List<WorldPoint> points = getPoints(gameObject);
-			treeTileMap.put(gameObject, points);
-			points.forEach(point -> tileTreeMap.put(point, gameObject));
+			treeObjects = Arrays.copyOf(treeObjects, Math.max(handle + 1, treeObjects.length * 2));
 		}
+		// A tree kept across a scene load is reused with its tiles, only the object is new
+		final GameObject previous = treeObjects[handle];
+		final List<WorldPoint> points = previous != null ? treeTileMap.remove(previous) : null;
+		treeObjects[handle] = gameObject;
+		treeTileMap.put(gameObject, points != null ? points : getPoints(gameObject));
+		treeSetVersion++;
 	}
 
-	private List<WorldPoint> getPoints(GameObject gameObject)
+	List<WorldPoint> getPoints(GameObject gameObject)
 	{
 		WorldPoint minPoint = getSWWorldPoint(gameObject);
 		WorldPoint maxPoint = getNEWorldPoint(gameObject);
@@ -222,32 +526,53 @@ public class TreeCountPlugin extends Plugin
 	public void onGameObjectDespawned(final GameObjectDespawned event)
 	{
 		final GameObject gameObject = event.getGameObject();
-		if (isRegionInWoodcuttingGuild(gameObject.getWorldLocation().getRegionID()) && !config.enableWCGuild())
+		final Tree tree = Tree.findTree(gameObject.getId());
+		if (tree == null)
 		{
 			return;
 		}
-		Tree tree = Tree.findTree(gameObject.getId());
-		if (tree != null && !tree.equals(Tree.REGULAR_TREE))
+
+		if (recorder.isRecording())
 		{
-			treeMap.remove(gameObject);
-			List<WorldPoint> points = treeTileMap.remove(gameObject);
-			if (points != null)
+			recorder.objectDespawned(gameObject);
+		}
+
+		// Trees in ignored regions are never indexed, so they are not found by their handle either
+		if (!tree.equals(Tree.REGULAR_TREE))
+		{
+			final int handle = getTreeHandle(gameObject);
+			if (handle != TreeCountEngine.NO_TREE)
 			{
-				points.forEach(tileTreeMap::remove);
+				removeTree(handle);
 			}
 		}
 	}
 
+	private void removeTree(int handle)
+	{
+		treeTileMap.remove(treeObjects[handle]);
+		engine.treeDespawned(handle);
+		treeObjects[handle] = null;
+		treeSetVersion++;
+	}
+
 	@Subscribe
 	public void onGameStateChanged(final GameStateChanged event)
 	{
+		if (recorder.isRecording())
+		{
+			recorder.gameStateChanged(event.getGameState());
+		}
+
 		if (event.getGameState() == GameState.LOADING)
 		{
-			treeMap.clear();
-			treeTileMap.clear();
-			tileTreeMap.clear();
-			playerMap.clear();
-			playerOrientationMap.clear();
+			// Trees are kept and matched against the spawns of the new scene, see onGameTick for the ones that are gone
+			engine.sceneLoading();
+			sceneLoading = true;
+			Arrays.fill(trackedPlayers, null);
+			dirtyPlayers.clear();
+			treeSetVersion++;
+			snapshot = TreeCountSnapshot.EMPTY;
 			firstRun = true;
 		}
 	}
@@ -256,36 +581,30 @@ public class TreeCountPlugin extends Plugin
 	public void onPlayerSpawned(final PlayerSpawned event)
 	{
 		// Event runs second upon login
+		Player player = event.getPlayer();
+		if (recorder.isRecording())
+		{
+			recorder.playerSpawned(player);
+		}
 
 		if (firstRun)
 		{
 			return;
 		}
 
-		Player player = event.getPlayer();
 		// log.debug("Player {} spawned at {}", player.getName(), player.getWorldLocation());
 
-		if (player.equals(client.getLocalPlayer()) && !config.includeSelf())
-		{
-			return;
-		}
-		if (isRegionInWoodcuttingGuild(player.getWorldLocation().getRegionID()) && !config.enableWCGuild())
+		if (player.equals(client.getLocalPlayer()) && !settings.includeSelf)
 		{
 			return;
 		}
 
 		// Sometimes this event is fired after the onAnimationChanged event and as a result, the chopped tree count
-		// is incorrectly incremented, so don't add the player to the map if they are already in it
-		if (!playerMap.containsKey(player))
+		// is incorrectly incremented, so don't add the player if they are already tracked. Most of the time the player
+		// won't have an animation, but the engine assigns them to a tree if they are already woodcutting
+		if (!isTracked(player))
 		{
-			playerMap.put(player, null);
-			playerOrientationMap.put(player, player.getOrientation());
-
-			// Most of the time the player won't have an animation, but since we're already checking we should be safe
-			if (isWoodcutting(player))
-			{
-				addToTreeFocusedMaps(player);
-			}
+			markDirty(player);
 		}
 	}
 
@@ -294,25 +613,29 @@ public class TreeCountPlugin extends Plugin
 	{
 		Player player = event.getPlayer();
 		// log.debug("Player {} despawned at {}", player.getName(), player.getWorldLocation());
-
-		if (player.equals(client.getLocalPlayer()) && !config.includeSelf())
+		if (recorder.isRecording())
 		{
-			return;
+			recorder.playerDespawned(player);
 		}
 
-		if (isRegionInWoodcuttingGuild(player.getWorldLocation().getRegionID()) && !config.enableWCGuild())
-		{
-			return;
-		}
-
-		playerOrientationMap.remove(player);
-
-		removeFromTreeMaps(player);
+		untrackPlayer(player);
 	}
 
 	@Subscribe
 	public void onAnimationChanged(final AnimationChanged event)
 	{
+		final long start = metrics.start();
+		handleAnimationChanged(event);
+		metrics.stop(TreeCountMetrics.Probe.ANIMATION_CHANGED, start);
+	}
+
+	private void handleAnimationChanged(final AnimationChanged event)
+	{
+		if (recorder.isRecording() && event.getActor() instanceof Player)
+		{
+			recorder.animationChanged((Player) event.getActor());
+		}
+
 		if (firstRun)
 		{
 			return;
@@ -321,200 +644,371 @@ public class TreeCountPlugin extends Plugin
 		if (event.getActor() instanceof Player)
 		{
 			Player player = (Player) event.getActor();
-			if (Objects.equals(player, client.getLocalPlayer()) && !config.includeSelf())
+			if (Objects.equals(player, client.getLocalPlayer()) && !settings.includeSelf)
 			{
 				return;
 			}
 
-			// Check combat level to avoid NPE. Not sure why this happens, maybe the Player isn't really a player?
-			// The player isn't null, but all the fields are
-			if (player.getCombatLevel() != 0 && (isRegionInWoodcuttingGuild(player.getWorldLocation().getRegionID()) && !config.enableWCGuild()))
+			// Players in ignored regions are dropped when resolved, where their location is read anyway
+			markDirty(player);
+		}
+	}
+
+	private void onPlayerOrientationChanged(Player player, int previousOrientation, int currentOrientation)
+	{
+		// Only choppers are polled for orientation changes, but animation changed should? fire before game tick,
+		// therefore non-chopping players should already be removed. But again, just in case perform the necessary checks
+		if (firstRun)
+		{
+			return;
+		}
+
+		// log.debug("Player {} orientation changed from {} to {}", player.getName(), previousOrientation, currentOrientation);
+
+		if (player.equals(client.getLocalPlayer()) && !settings.includeSelf)
+		{
+			return;
+		}
+
+		// Turning releases the previously tracked tree and, if still woodcutting, picks up the one now faced
+		markDirty(player);
+	}
+
+	private void loadDefinitions()
+	{
+		definitionsModified = TreeDefinitions.OVERRIDE_FILE.lastModified();
+		TreeDefinitions.set(TreeDefinitions.load(TreeDefinitions.OVERRIDE_FILE));
+		log.debug("Loaded tree definitions, local file modified at {}", definitionsModified);
+	}
+
+	/**
+	 * Reloads the definitions if the local file changed, run on the executor so that the client thread never reads or
+	 * parses the file
+	 */
+	private void checkDefinitions()
+	{
+		if (TreeDefinitions.OVERRIDE_FILE.lastModified() != definitionsModified)
+		{
+			loadDefinitions();
+			definitionsChanged = true;
+		}
+	}
+
+	/**
+	 * Drops the trees that the current definitions no longer classify the same way and rescans the scene for the ones
+	 * they newly classify, so that every tree in the engine despawns under the definitions it was added with
+	 */
+	private void reindexTrees()
+	{
+		for (int handle = 0; handle < engine.getTreeCapacity(); handle++)
+		{
+			if (!engine.isTree(handle))
 			{
-				return;
+				continue;
 			}
 
-			if (isWoodcutting(player) && !treeMap.isEmpty())
+			final Tree tree = Tree.findTree(engine.getTreeObjectId(handle));
+			if (tree == null || tree.isProvidesForestryBoost() != engine.isForestryTree(handle))
 			{
-				addToTreeFocusedMaps(player);
+				removeTree(handle);
 			}
-			else if (player.getAnimation() == AnimationID.IDLE)
+		}
+		// Trees that are still in the engine are matched by the scan and kept as they are
+		sceneLoading = true;
+		// Choppers of the removed trees were unassigned with them, resolve everyone against the rescanned trees
+		for (Player player : trackedPlayers)
+		{
+			if (player != null)
 			{
-				removeFromTreeMaps(player);
+				markDirty(player);
 			}
 		}
 	}
 
-	@Subscribe
-	public void onPlayerOrientationChanged(final PlayerOrientationChanged event)
+	/**
+	 * Starts or stops tracking the local player after including them was toggled
+	 */
+	private void updateIncludeSelf()
 	{
-		// Player orientation map should already consist of players chopping trees but check just in case
-		// Also, animation changed should? fire before game tick, therefore non-chopping players should be removed
-		// But again, just in case perform the necessary checks
-		if (firstRun)
+		final Player localPlayer = client.getLocalPlayer();
+		if (localPlayer == null)
 		{
 			return;
 		}
 
-		Player player = event.getPlayer();
-		Direction previousDirection = new Angle(event.getPreviousOrientation()).getNearestDirection();
-		Direction currentDirection = new Angle(event.getCurrentOrientation()).getNearestDirection();
-
-		// log.debug("Player {} orientation changed from {} ({}) to {} ({})",
-		//	player.getName(),
-		//	event.getPreviousOrientation(), previousDirection,
-		//	event.getCurrentOrientation(), currentDirection
-		// );
-
-		if (player.equals(client.getLocalPlayer()) && !config.includeSelf())
+		if (settings.includeSelf)
 		{
-			return;
+			markDirty(localPlayer);
+		}
+		else
+		{
+			untrackPlayer(localPlayer);
 		}
+	}
 
-		if (isRegionInWoodcuttingGuild(player.getWorldLocation().getRegionID()) && !config.enableWCGuild())
+	/**
+	 * Drops the trees and players in regions the settings now ignore, then rescans the scene and resolves every player
+	 * again to pick up the ones in regions that are no longer ignored
+	 */
+	private void pruneIgnoredRegions()
+	{
+		for (int handle = 0; handle < engine.getTreeCapacity(); handle++)
 		{
-			return;
+			if (engine.isTree(handle) && isRegionIgnored(engine.getTreeLocation(handle)))
+			{
+				removeTree(handle);
+			}
+		}
+		for (int slot = 0; slot < TreeCountEngine.MAX_PLAYERS; slot++)
+		{
+			if (trackedPlayers[slot] != null && engine.isPlayerActive(slot) && isRegionIgnored(engine.getPlayerLocation(slot)))
+			{
+				untrackPlayer(trackedPlayers[slot]);
+			}
 		}
 
-		playerOrientationMap.put(player, event.getCurrentOrientation());
-		removeFromTreeMaps(player); // Remove the previous tracked case
-		if (isWoodcutting(player))
+		sceneLoading = true;
+		for (Player player : client.getPlayers())
 		{
-			addToTreeFocusedMaps(player);
+			if (!player.equals(client.getLocalPlayer()) || settings.includeSelf)
+			{
+				markDirty(player);
+			}
 		}
 	}
 
 	boolean isWoodcutting(Actor actor)
 	{
-		return isWoodcuttingWithRegularAxe(actor) || isWoodcuttingWithFellingAxe(actor);
+		return isWoodcuttingAnimation(actor.getAnimation());
+	}
+
+	static boolean isWoodcuttingAnimation(int animation)
+	{
+		return TreeDefinitions.get().isWoodcuttingAnimation(animation);
 	}
 
-	private boolean isWoodcuttingWithRegularAxe(Actor actor)
+	GameObject findClosestFacingTree(Actor actor)
 	{
-		switch (actor.getAnimation())
+		return getTreeObject(engine.findFacingTree(getLocation(actor), actor.getOrientation()));
+	}
+
+	/**
+	 * Writes the handles of the trees next to the actor into the given array, see {@link #getTreeObject(int)}
+	 *
+	 * @param trees array of at least four elements to write the handles to
+	 * @return number of handles written
+	 */
+	int getAdjacentTrees(Actor actor, boolean ignoreNonForestryTrees, int[] trees)
+	{
+		return engine.findAdjacentTrees(getLocation(actor), ignoreNonForestryTrees, trees);
+	}
+
+	/**
+	 * @return the tree object for the engine handle, or null if the handle is not a tree
+	 */
+	GameObject getTreeObject(int handle)
+	{
+		return engine.isTree(handle) ? treeObjects[handle] : null;
+	}
+
+	private int getTreeHandle(GameObject gameObject)
+	{
+		final Point min = gameObject.getSceneMinLocation();
+		final int handle = engine.findTree(TreeCountEngine.packLocation(client.getBaseX() + min.getX(), client.getBaseY() + min.getY(), gameObject.getPlane()));
+		return handle != TreeCountEngine.NO_TREE && treeObjects[handle] == gameObject ? handle : TreeCountEngine.NO_TREE;
+	}
+
+	/**
+	 * Packs the actor's tile for the engine, using the client's plane as {@link Actor#getWorldLocation()} does
+	 */
+	private int getLocation(Actor actor)
+	{
+		return getLocation(actor.getLocalLocation());
+	}
+
+	private int getLocation(LocalPoint localLocation)
+	{
+		return TreeCountEngine.packLocation(client.getBaseX() + localLocation.getSceneX(), client.getBaseY() + localLocation.getSceneY(), client.getPlane());
+	}
+
+	private static boolean isValidSlot(int slot)
+	{
+		return slot >= 0 && slot < TreeCountEngine.MAX_PLAYERS;
+	}
+
+	private boolean isTracked(Player player)
+	{
+		final int slot = player.getId();
+		return isValidSlot(slot) && trackedPlayers[slot] == player;
+	}
+
+	private void untrackPlayer(Player player)
+	{
+		final int slot = player.getId();
+		if (isValidSlot(slot) && trackedPlayers[slot] == player)
 		{
-			// Regular axe animation IDs
-			case AnimationID.WOODCUTTING_BRONZE:
-			case AnimationID.WOODCUTTING_IRON:
-			case AnimationID.WOODCUTTING_STEEL:
-			case AnimationID.WOODCUTTING_BLACK:
-			case AnimationID.WOODCUTTING_MITHRIL:
-			case AnimationID.WOODCUTTING_ADAMANT:
-			case AnimationID.WOODCUTTING_RUNE:
-			case AnimationID.WOODCUTTING_GILDED:
-			case AnimationID.WOODCUTTING_DRAGON:
-			case AnimationID.WOODCUTTING_DRAGON_OR:
-			case AnimationID.WOODCUTTING_INFERNAL:
-			case AnimationID.WOODCUTTING_3A_AXE:
-			case AnimationID.WOODCUTTING_CRYSTAL:
-			case AnimationID.WOODCUTTING_TRAILBLAZER:
-				return true;
-			default:
-				return false;
+			trackedPlayers[slot] = null;
+			removeExpectedChoppers(slot);
+			dirtyPlayers.remove(slot);
+			engine.playerDespawned(slot);
 		}
 	}
 
-	private boolean isWoodcuttingWithFellingAxe(Actor actor)
+	/**
+	 * Queues the player to be resolved against the engine on the next game tick, tracking them from then on
+	 */
+	private void markDirty(Player player)
 	{
-		switch (actor.getAnimation())
+		final int slot = player.getId();
+		if (!isValidSlot(slot))
 		{
-			// Felling axes (Forestry Part 2) animation IDs
-			case AnimationID.WOODCUTTING_2H_BRONZE:
-			case AnimationID.WOODCUTTING_2H_IRON:
-			case AnimationID.WOODCUTTING_2H_STEEL:
-			case AnimationID.WOODCUTTING_2H_BLACK:
-			case AnimationID.WOODCUTTING_2H_MITHRIL:
-			case AnimationID.WOODCUTTING_2H_ADAMANT:
-			case AnimationID.WOODCUTTING_2H_RUNE:
-			case AnimationID.WOODCUTTING_2H_DRAGON:
-			case AnimationID.WOODCUTTING_2H_CRYSTAL:
-			case AnimationID.WOODCUTTING_2H_3A:
-				return true;
-			default:
-				return false;
+			return;
 		}
+
+		if (trackedPlayers[slot] != player)
+		{
+			trackedPlayers[slot] = player;
+			if (engine.isPlayerActive(slot))
+			{
+				engine.playerDespawned(slot);
+			}
+		}
+		dirtyPlayers.add(slot);
 	}
 
-	void addToTreeFocusedMaps(Player player)
+	/**
+	 * Resolves every player that changed during the tick exactly once, however many events they fired
+	 */
+	private void resolveDirtyPlayers()
 	{
-		GameObject closestTree = findClosestFacingTree(player);
-
-		if (player != client.getLocalPlayer() || config.includeSelf())
+		if (dirtyPlayers.size() == 0)
 		{
-			Direction direction = new Angle(player.getOrientation()).getNearestDirection();
-			// log.debug("Actor: {}, Direction: {}, Closest Facing Tree: {}, Count: {}", player.getName(), direction,
-			//	closestTree != null ? closestTree.getWorldLocation() : "NULL",
-			//	closestTree != null ? treeMap.get(closestTree) : -1);
+			return;
 		}
 
-		if (closestTree == null)
+		engine.setSceneBase(client.getBaseX(), client.getBaseY());
+		final Player localPlayer = client.getLocalPlayer();
+		for (int i = 0; i < dirtyPlayers.size(); i++)
 		{
-			// Hotfix for #24 where players chopping with a felling axe could be chopping a tree that is not facing them
-			// This will treat the only adjacent tree as the tree the player is chopping
-			if (isWoodcutting(player))
+			final long start = metrics.start();
+			final int slot = dirtyPlayers.get(i);
+			final Player player = trackedPlayers[slot];
+			removeExpectedChoppers(slot);
+			// Some players fire events with all of their fields unset, those are dropped along with ignored ones and the
+			// local player if they were excluded while queued
+			final LocalPoint localLocation = player.getLocalLocation();
+			final int location = localLocation != null ? getLocation(localLocation) : 0;
+			if (localLocation == null || isRegionIgnored(location) || (player == localPlayer && !settings.includeSelf))
 			{
-				List<GameObject> adjacentTrees = getAdjacentTrees(player, false);
-				if (adjacentTrees.size() == 1)
+				// Stop tracking them until an event fires for them that is counted
+				trackedPlayers[slot] = null;
+				if (engine.isPlayerActive(slot))
 				{
-					playerMap.put(player, adjacentTrees.get(0));
-					treeMap.merge(adjacentTrees.get(0), 1, Integer::sum);
+					engine.playerDespawned(slot);
 				}
 			}
-			return;
+			else
+			{
+				if (engine.isPlayerActive(slot))
+				{
+					engine.playerUpdated(slot, location, player.getOrientation(), player.getAnimation());
+				}
+				else
+				{
+					engine.playerSpawned(slot, location, player.getOrientation(), player.getAnimation());
+				}
+				if (expectedChoppersVersion == treeSetVersion)
+				{
+					addExpectedChoppers(slot, location, player.getAnimation());
+				}
+			}
+			metrics.stop(TreeCountMetrics.Probe.RESOLVE_PLAYER, start);
 		}
-
-		playerMap.put(player, closestTree);
-		treeMap.merge(closestTree, 1, Integer::sum);
+		dirtyPlayers.clear();
 	}
 
-	void removeFromTreeMaps(Player player)
+	/**
+	 * Recounts the woodcutting players adjacent to each tree from the tracked players, only when the trees changed since
+	 * the last recount or the option was just enabled. Otherwise the counts are kept up to date as players are resolved
+	 */
+	private void updateExpectedChoppers()
 	{
-		GameObject tree = playerMap.get(player);
-		playerMap.remove(player);
-		treeMap.computeIfPresent(tree, (unused, value) -> {
-			// log.debug("Removing player {} from tree {}. {} -> {}", player.getName(), tree.getWorldLocation(), value, Math.max(0, value - 1));
-			return Math.max(0, value - 1);
-		});
+		if (expectedChoppersVersion == treeSetVersion)
+		{
+			return;
+		}
+
+		if (expectedChoppers.length < engine.getTreeCapacity())
+		{
+			expectedChoppers = new int[engine.getTreeCapacity()];
+		}
+		Arrays.fill(expectedChoppers, 0);
+		Arrays.fill(playerExpectedTreeCounts, 0);
+		expectedChoppersVersion = treeSetVersion;
+
+		// Rebuilt from what the players were last resolved with, the same state the incremental updates are based on
+		for (int slot = 0; slot < TreeCountEngine.MAX_PLAYERS; slot++)
+		{
+			if (engine.isPlayerActive(slot))
+			{
+				addExpectedChoppers(slot, engine.getPlayerLocation(slot), engine.getPlayerAnimation(slot));
+			}
+		}
 	}
 
-	GameObject findClosestFacingTree(Actor actor)
+	private void addExpectedChoppers(int slot, int location, int animation)
 	{
-		WorldPoint actorLocation = actor.getWorldLocation();
-		Direction direction = new Angle(actor.getOrientation()).getNearestDirection();
-		WorldPoint facingPoint = neighborPoint(actorLocation, direction);
-		return tileTreeMap.get(facingPoint);
+		if (!isWoodcuttingAnimation(animation))
+		{
+			return;
+		}
+
+		final int adjacentCount = engine.findAdjacentTrees(location, false, adjacentTrees);
+		System.arraycopy(adjacentTrees, 0, playerExpectedTrees, slot * 4, adjacentCount);
+		playerExpectedTreeCounts[slot] = adjacentCount;
+		for (int i = 0; i < adjacentCount; i++)
+		{
+			expectedChoppers[adjacentTrees[i]]++;
+		}
 	}
 
-	List<GameObject> getAdjacentTrees(Actor actor, boolean ignoreNonForestryTrees)
+	private void removeExpectedChoppers(int slot)
 	{
-		WorldPoint actorLocation = actor.getWorldLocation();
-		List<GameObject> adjacentTrees = new ArrayList<>();
-		for (Direction direction : Direction.values())
+		// Counts from before the trees changed are thrown away by the next recount instead
+		if (expectedChoppersVersion == treeSetVersion)
 		{
-			WorldPoint neighborPoint = neighborPoint(actorLocation, direction);
-			GameObject tree = tileTreeMap.get(neighborPoint);
-			if (tree != null && (!ignoreNonForestryTrees || (ignoreNonForestryTrees && Tree.findForestryTree(tree.getId()) != null)))
+			for (int i = 0; i < playerExpectedTreeCounts[slot]; i++)
 			{
-				adjacentTrees.add(tree);
+				expectedChoppers[playerExpectedTrees[slot * 4 + i]]--;
 			}
 		}
-		return adjacentTrees;
+		playerExpectedTreeCounts[slot] = 0;
 	}
 
-	WorldPoint neighborPoint(WorldPoint point, Direction direction)
+	/**
+	 * Fills the snapshot that is not published with the current state of the trees and publishes it in place of the other
+	 */
+	private void publishSnapshot()
 	{
-		switch (direction)
-		{
-			case NORTH:
-				return point.dy(1);
-			case SOUTH:
-				return point.dy(-1);
-			case EAST:
-				return point.dx(1);
-			case WEST:
-				return point.dx(-1);
-			default:
-				throw new IllegalStateException();
-		}
+		final Player localPlayer = client.getLocalPlayer();
+		final GameObject facingTree = settings.renderFacingTree && localPlayer != null ? findClosestFacingTree(localPlayer) : null;
+		final int[] expected = settings.renderExpectedChoppers ? expectedChoppers : null;
+		final TreeCountSnapshot next = snapshots[nextSnapshot];
+		next.capture(engine, treeObjects, treeTileMap, expected, treeSetVersion, facingTree, settings.topTrees);
+		snapshot = next;
+		nextSnapshot ^= 1;
+	}
+
+	private void clearState()
+	{
+		engine.reset();
+		Arrays.fill(treeObjects, null);
+		Arrays.fill(expectedChoppers, 0);
+		Arrays.fill(trackedPlayers, null);
+		dirtyPlayers.clear();
+		treeTileMap.clear();
+		treeSetVersion++;
+		snapshot = TreeCountSnapshot.EMPTY;
 	}
 
 	private WorldPoint getSWWorldPoint(GameObject gameObject)
@@ -533,8 +1027,11 @@ public class TreeCountPlugin extends Plugin
 		return WorldPoint.fromScene(client, point.getX(), point.getY(), gameObject.getPlane());
 	}
 
-	boolean isRegionInWoodcuttingGuild(int regionID)
+	/**
+	 * @return whether the packed location is in a region the plugin ignores, see {@link RegionFilter}
+	 */
+	private boolean isRegionIgnored(int location)
 	{
-		return regionID == 6198 || regionID == 6454;
+		return settings.regionFilter.isIgnored(TreeCountEngine.locationX(location), TreeCountEngine.locationY(location));
 	}
 }
@@ -0,0 +1,65 @@
+package treecount;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import javax.inject.Inject;
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+import net.runelite.client.util.Text;
+
+/**
+ * Panel listing the forestry trees with the most choppers, busiest first, with their distance from the local player in
+ * tiles. The ranking is taken from the plugin's snapshot, so rendering only reads the listed trees
+ */
+public class TreeCountRankingOverlay extends OverlayPanel
+{
+	private final TreeCountPlugin plugin;
+	private final Client client;
+
+	@Inject
+	private TreeCountRankingOverlay(TreeCountPlugin plugin, Client client)
+	{
+		super(plugin);
+		this.plugin = plugin;
+		this.client = client;
+		setPosition(OverlayPosition.TOP_LEFT);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		final TreeCountSnapshot snapshot = plugin.getSnapshot();
+		final Player localPlayer = client.getLocalPlayer();
+		if (plugin.getSettings().topTrees == 0 || snapshot.getTopSize() == 0 || localPlayer == null)
+		{
+			return null;
+		}
+
+		final LocalPoint playerLocation = localPlayer.getLocalLocation();
+		final int playerX = client.getBaseX() + playerLocation.getSceneX();
+		final int playerY = client.getBaseY() + playerLocation.getSceneY();
+
+		panelComponent.getChildren().add(TitleComponent.builder()
+			.text("Busiest trees")
+			.build());
+
+		for (int rank = 0; rank < snapshot.getTopSize(); rank++)
+		{
+			final int index = snapshot.getTopTree(rank);
+			final Tree tree = Tree.findTree(snapshot.getObjectId(index));
+			final int location = snapshot.getLocation(index);
+			final int distance = Math.max(Math.abs(TreeCountEngine.locationX(location) - playerX), Math.abs(TreeCountEngine.locationY(location) - playerY));
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left(tree != null ? Text.titleCase(tree) : "Tree")
+				.right(snapshot.getCount(index) + " (" + distance + " tiles)")
+				.build());
+		}
+
+		return super.render(graphics);
+	}
+}
@@ -0,0 +1,55 @@
+package treecount;
+
+import java.awt.Color;
+
+/**
+ * Copy of the plugin's config taken when it starts and whenever the config changes. Event handlers and overlays read
+ * its fields instead of calling {@link TreeCountConfig}, whose proxy looks up and converts the stored value on every
+ * call.
+ */
+final class TreeCountSettings
+{
+	final boolean renderTreeHull;
+	final boolean dynamicColors;
+	final Color textColor;
+	final int drawDistance;
+	final int outlineDistance;
+	final int maxLabels;
+	final int topTrees;
+	final boolean recordHistory;
+	final boolean shareCounts;
+	final boolean renderTreeTiles;
+	final boolean renderFacingTree;
+	final boolean includeSelf;
+	final boolean enableWCGuild;
+	final boolean renderPlayerOrientation;
+	final boolean renderExpectedChoppers;
+	final boolean showMetrics;
+	final boolean recordEvents;
+	final boolean checkCounts;
+	// Compiled from the region items, so event handlers can check a tile without parsing them
+	final RegionFilter regionFilter;
+
+	TreeCountSettings(TreeCountConfig config)
+	{
+		renderTreeHull = config.renderTreeHull();
+		dynamicColors = config.dynamicColors();
+		textColor = config.textColor();
+		drawDistance = config.drawDistance();
+		outlineDistance = config.outlineDistance();
+		maxLabels = config.maxLabels();
+		topTrees = config.topTrees();
+		recordHistory = config.recordHistory();
+		shareCounts = config.shareCounts();
+		renderTreeTiles = config.renderTreeTiles();
+		renderFacingTree = config.renderFacingTree();
+		includeSelf = config.includeSelf();
+		enableWCGuild = config.enableWCGuild();
+		renderPlayerOrientation = config.renderPlayerOrientation();
+		renderExpectedChoppers = config.renderExpectedChoppers();
+		showMetrics = config.showMetrics();
+		recordEvents = config.recordEvents();
+		checkCounts = config.checkCounts();
+		regionFilter = new RegionFilter(!enableWCGuild, config.trackedRegions(), config.ignoredRegions());
+	}
+}
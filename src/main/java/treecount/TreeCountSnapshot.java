@@ -0,0 +1,196 @@
+package treecount;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import net.runelite.api.GameObject;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * The trees and their counts as of the end of a game tick, published by the plugin for the overlay. The plugin keeps
+ * two snapshots and takes turns filling them: each tick fills the one that is not published and then swaps the
+ * published reference, so the overlay never reads a snapshot that is being filled. Both are filled and rendered on the
+ * client thread, so the one last published is never still being drawn when it is filled again. A snapshot's arrays
+ * only grow with the number of trees and are reused from then on.
+ */
+final class TreeCountSnapshot
+{
+	static final TreeCountSnapshot EMPTY = new TreeCountSnapshot();
+
+	// Tree set version of the plugin the snapshot was captured from, changes whenever a tree was added or removed
+	@Getter
+	private int version = -1;
+	@Getter
+	private int size;
+	private int[] handles = new int[0];
+	private int[] counts = new int[0];
+	private int[] objectIds = new int[0];
+	private boolean[] forestry = new boolean[0];
+	private int[] locations = new int[0];
+	private int[] expectedChoppers = new int[0];
+	private GameObject[] objects = new GameObject[0];
+	@SuppressWarnings("unchecked")
+	private List<WorldPoint>[] tiles = (List<WorldPoint>[]) new List[0];
+	// Tree the local player is facing, only captured while the facing tree debug overlay is enabled
+	@Getter
+	private GameObject facingTree;
+	// Busiest forestry trees, busiest first, as indices into the snapshot's trees
+	@Getter
+	private int topSize;
+	private int[] topIndices = new int[0];
+
+	/**
+	 * Overwrites the snapshot with the state of every tree. Must not be called on the published snapshot
+	 *
+	 * @param treeObjects tree objects indexed by handle
+	 * @param expectedChoppers woodcutting players next to each tree indexed by handle, or null if not counted
+	 * @param topTrees number of busiest forestry trees to rank
+	 */
+	void capture(TreeCountEngine engine,
+				 GameObject[] treeObjects,
+				 Map<GameObject, List<WorldPoint>> treeTileMap,
+				 int[] expectedChoppers,
+				 int version,
+				 GameObject facingTree,
+				 int topTrees)
+	{
+		final int previousSize = size;
+		final int treeCount = engine.getTreeCount();
+		ensureCapacity(treeCount);
+		int index = 0;
+		for (int handle = 0; handle < engine.getTreeCapacity() && index < treeCount; handle++)
+		{
+			if (!engine.isTree(handle) || treeObjects[handle] == null)
+			{
+				continue;
+			}
+
+			handles[index] = handle;
+			counts[index] = engine.getCount(handle);
+			objectIds[index] = engine.getTreeObjectId(handle);
+			forestry[index] = engine.isForestryTree(handle);
+			locations[index] = engine.getTreeLocation(handle);
+			this.expectedChoppers[index] = expectedChoppers != null && handle < expectedChoppers.length ? expectedChoppers[handle] : 0;
+			objects[index] = treeObjects[handle];
+			// The tile lists are never modified once created, so they are shared rather than copied
+			tiles[index] = treeTileMap.get(treeObjects[handle]);
+			index++;
+		}
+
+		// Don't hold on to the objects of trees that are gone
+		if (index < previousSize)
+		{
+			Arrays.fill(objects, index, previousSize, null);
+			Arrays.fill(tiles, index, previousSize, null);
+		}
+		size = index;
+		this.version = version;
+		this.facingTree = facingTree;
+
+		topSize = 0;
+		if (topTrees <= 0)
+		{
+			return;
+		}
+
+		// The engine keeps its trees ranked, so only the listed handles have to be looked up. Each index is written
+		// over a handle that was already looked up
+		if (topIndices.length != topTrees)
+		{
+			topIndices = new int[topTrees];
+		}
+		final int topCount = engine.getTopTrees(topIndices);
+		for (int i = 0; i < topCount; i++)
+		{
+			final int topIndex = indexOf(topIndices[i]);
+			if (topIndex != -1)
+			{
+				topIndices[topSize++] = topIndex;
+			}
+		}
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (handles.length >= capacity)
+		{
+			return;
+		}
+
+		final int newCapacity = Math.max(capacity, handles.length * 2);
+		handles = Arrays.copyOf(handles, newCapacity);
+		counts = Arrays.copyOf(counts, newCapacity);
+		objectIds = Arrays.copyOf(objectIds, newCapacity);
+		forestry = Arrays.copyOf(forestry, newCapacity);
+		locations = Arrays.copyOf(locations, newCapacity);
+		expectedChoppers = Arrays.copyOf(expectedChoppers, newCapacity);
+		objects = Arrays.copyOf(objects, newCapacity);
+		tiles = Arrays.copyOf(tiles, newCapacity);
+	}
+
+	/**
+	 * @return index of the tree with the given handle, or -1 if it is not in the snapshot
+	 */
+	private int indexOf(int handle)
+	{
+		// Trees are captured in handle order
+		final int index = Arrays.binarySearch(handles, 0, size, handle);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * @param rank 0 for the busiest tree, up to {@link #getTopSize()}
+	 * @return index of the tree at the given rank
+	 */
+	int getTopTree(int rank)
+	{
+		return topIndices[rank];
+	}
+
+	int getHandle(int index)
+	{
+		return handles[index];
+	}
+
+	int getCount(int index)
+	{
+		return counts[index];
+	}
+
+	int getObjectId(int index)
+	{
+		return objectIds[index];
+	}
+
+	boolean isForestryTree(int index)
+	{
+		return forestry[index];
+	}
+
+	/**
+	 * @return south-west tile of the tree, see {@link TreeCountEngine#packLocation(int, int, int)}
+	 */
+	int getLocation(int index)
+	{
+		return locations[index];
+	}
+
+	int getExpectedChoppers(int index)
+	{
+		return expectedChoppers[index];
+	}
+
+	GameObject getObject(int index)
+	{
+		return objects[index];
+	}
+
+	/**
+	 * @return the tree's tiles, or null if they are not known
+	 */
+	List<WorldPoint> getTiles(int index)
+	{
+		return tiles[index];
+	}
+}
@@ -0,0 +1,263 @@
+package treecount;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.AnimationID;
+import net.runelite.client.RuneLite;
+
+/**
+ * Which objects are trees and which animations are woodcutting, compiled into tables indexed by ID so that classifying
+ * an object or animation is a bounds check and an array read.
+ * <p>
+ * The IDs of {@link Tree} and {@link #WOODCUTTING_ANIMATIONS} are built in. The {@value #RESOURCE} resource and then the
+ * local {@link #OVERRIDE_FILE} are applied on top of them, so new tree variants and axes can be added without a code
+ * change. Each line of a definition file is a {@link Tree} name, or NONE, followed by the object IDs to classify as it,
+ * or ANIMATION or NOT_ANIMATION followed by the animation IDs to mark or unmark as woodcutting. Definitions are never
+ * modified once compiled, a reload compiles new ones and swaps them in with {@link #set(TreeDefinitions)}.
+ */
+@Slf4j
+final class TreeDefinitions
+{
+	static final String RESOURCE = "trees.txt";
+	static final File OVERRIDE_FILE = new File(new File(RuneLite.RUNELITE_DIR, "tree-count"), "trees.txt");
+
+	private static final int[] WOODCUTTING_ANIMATIONS = {
+		// Regular axes
+		AnimationID.WOODCUTTING_BRONZE,
+		AnimationID.WOODCUTTING_IRON,
+		AnimationID.WOODCUTTING_STEEL,
+		AnimationID.WOODCUTTING_BLACK,
+		AnimationID.WOODCUTTING_MITHRIL,
+		AnimationID.WOODCUTTING_ADAMANT,
+		AnimationID.WOODCUTTING_RUNE,
+		AnimationID.WOODCUTTING_GILDED,
+		AnimationID.WOODCUTTING_DRAGON,
+		AnimationID.WOODCUTTING_DRAGON_OR,
+		AnimationID.WOODCUTTING_INFERNAL,
+		AnimationID.WOODCUTTING_3A_AXE,
+		AnimationID.WOODCUTTING_CRYSTAL,
+		AnimationID.WOODCUTTING_TRAILBLAZER,
+		// Felling axes (Forestry Part 2)
+		AnimationID.WOODCUTTING_2H_BRONZE,
+		AnimationID.WOODCUTTING_2H_IRON,
+		AnimationID.WOODCUTTING_2H_STEEL,
+		AnimationID.WOODCUTTING_2H_BLACK,
+		AnimationID.WOODCUTTING_2H_MITHRIL,
+		AnimationID.WOODCUTTING_2H_ADAMANT,
+		AnimationID.WOODCUTTING_2H_RUNE,
+		AnimationID.WOODCUTTING_2H_DRAGON,
+		AnimationID.WOODCUTTING_2H_CRYSTAL,
+		AnimationID.WOODCUTTING_2H_3A,
+	};
+
+	// IDs above this are rejected as typos rather than growing the tables to fit them
+	private static final int MAX_ID = 1 << 20;
+	private static final String NO_TREE = "NONE";
+	private static final String ANIMATION = "ANIMATION";
+	private static final String NOT_ANIMATION = "NOT_ANIMATION";
+
+	private static final Tree[] TREES = Tree.values();
+
+	static final TreeDefinitions BUILT_IN = createBuiltIn();
+
+	private static volatile TreeDefinitions current = BUILT_IN;
+
+	// Indexed by object ID, holds the ordinal of the matching tree plus one so that 0 means the object is not a tree
+	private final byte[] treeById;
+	private final boolean[] woodcuttingAnimations;
+
+	private TreeDefinitions(byte[] treeById, boolean[] woodcuttingAnimations)
+	{
+		this.treeById = treeById;
+		this.woodcuttingAnimations = woodcuttingAnimations;
+	}
+
+	/**
+	 * @return the definitions in use, read once per lookup so that a concurrent reload is seen either fully or not at all
+	 */
+	static TreeDefinitions get()
+	{
+		return current;
+	}
+
+	static void set(TreeDefinitions definitions)
+	{
+		current = definitions;
+	}
+
+	/**
+	 * Compiles the built-in definitions with the resource and, if it exists, the given local file applied on top
+	 */
+	static TreeDefinitions load(File overrideFile)
+	{
+		TreeDefinitions definitions = BUILT_IN;
+		try (InputStream in = TreeDefinitions.class.getResourceAsStream(RESOURCE))
+		{
+			if (in != null)
+			{
+				definitions = definitions.with(new InputStreamReader(in, StandardCharsets.UTF_8), RESOURCE);
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to read tree definitions {}", RESOURCE, e);
+		}
+
+		if (overrideFile.isFile())
+		{
+			try (Reader reader = Files.newBufferedReader(overrideFile.toPath(), StandardCharsets.UTF_8))
+			{
+				definitions = definitions.with(reader, overrideFile.getName());
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to read tree definitions {}", overrideFile, e);
+			}
+		}
+		return definitions;
+	}
+
+	/**
+	 * @return tree that matches the given object ID, or null if no match
+	 */
+	Tree findTree(int objectId)
+	{
+		if (objectId < 0 || objectId >= treeById.length)
+		{
+			return null;
+		}
+		final int index = treeById[objectId];
+		return index == 0 ? null : TREES[index - 1];
+	}
+
+	boolean isWoodcuttingAnimation(int animation)
+	{
+		return animation >= 0 && animation < woodcuttingAnimations.length && woodcuttingAnimations[animation];
+	}
+
+	/**
+	 * Compiles new definitions with the lines of the given definition file applied on top of these. Invalid lines are
+	 * logged and skipped
+	 *
+	 * @param source name of the file for the log
+	 */
+	TreeDefinitions with(Reader reader, String source) throws IOException
+	{
+		byte[] trees = treeById.clone();
+		boolean[] animations = woodcuttingAnimations.clone();
+		final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		String line;
+		int lineNumber = 0;
+		while ((line = lines.readLine()) != null)
+		{
+			lineNumber++;
+			final int comment = line.indexOf('#');
+			final String[] tokens = (comment == -1 ? line : line.substring(0, comment)).trim().split("\\s+");
+			if (tokens[0].isEmpty())
+			{
+				continue;
+			}
+
+			final String kind = tokens[0];
+			final boolean animation = kind.equals(ANIMATION) || kind.equals(NOT_ANIMATION);
+			final Tree tree = animation || kind.equals(NO_TREE) ? null : findTreeByName(kind);
+			if (!animation && tree == null && !kind.equals(NO_TREE))
+			{
+				log.warn("Skipping unknown tree {} on line {} of {}", kind, lineNumber, source);
+				continue;
+			}
+
+			for (int i = 1; i < tokens.length; i++)
+			{
+				final int id = parseId(tokens[i]);
+				if (id == -1)
+				{
+					log.warn("Skipping invalid ID {} on line {} of {}", tokens[i], lineNumber, source);
+					continue;
+				}
+
+				if (animation)
+				{
+					if (id >= animations.length)
+					{
+						animations = Arrays.copyOf(animations, id + 1);
+					}
+					animations[id] = kind.equals(ANIMATION);
+				}
+				else
+				{
+					if (id >= trees.length)
+					{
+						trees = Arrays.copyOf(trees, id + 1);
+					}
+					trees[id] = tree == null ? 0 : (byte) (tree.ordinal() + 1);
+				}
+			}
+		}
+		return new TreeDefinitions(trees, animations);
+	}
+
+	private static TreeDefinitions createBuiltIn()
+	{
+		int maxTreeId = 0;
+		for (Tree tree : TREES)
+		{
+			for (int treeId : tree.getTreeIds())
+			{
+				maxTreeId = Math.max(maxTreeId, treeId);
+			}
+		}
+
+		final byte[] trees = new byte[maxTreeId + 1];
+		for (Tree tree : TREES)
+		{
+			for (int treeId : tree.getTreeIds())
+			{
+				trees[treeId] = (byte) (tree.ordinal() + 1);
+			}
+		}
+
+		final boolean[] animations = new boolean[Arrays.stream(WOODCUTTING_ANIMATIONS).max().orElse(0) + 1];
+		for (int animation : WOODCUTTING_ANIMATIONS)
+		{
+			animations[animation] = true;
+		}
+		return new TreeDefinitions(trees, animations);
+	}
+
+	private static Tree findTreeByName(String name)
+	{
+		for (Tree tree : TREES)
+		{
+			if (tree.name().equals(name))
+			{
+				return tree;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the ID, or -1 if it is not a number between 0 and {@link #MAX_ID}
+	 */
+	private static int parseId(String token)
+	{
+		try
+		{
+			final int id = Integer.parseInt(token);
+			return id >= 0 && id <= MAX_ID ? id : -1;
+		}
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+}
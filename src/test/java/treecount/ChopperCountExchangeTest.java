@@ -0,0 +1,125 @@
+package treecount;
+
+import java.io.File;
+import java.io.IOException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChopperCountExchangeTest
+{
+	private static final int CHOP = 1;
+	private static final int BASE_X = 3136;
+	private static final int BASE_Y = 3392;
+
+	private File file;
+	private TreeCountEngine engine;
+	private ChopperCountExchange first;
+	private ChopperCountExchange second;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		file = File.createTempFile("exchange", ".bin");
+		engine = new TreeCountEngine(animation -> animation == CHOP);
+		engine.setSceneBase(BASE_X, BASE_Y);
+		engine.treeSpawned(10822, true, 0, BASE_X + 50, BASE_Y + 50, BASE_X + 51, BASE_Y + 51);
+		engine.treeSpawned(10820, false, 0, BASE_X + 10, BASE_Y + 10, BASE_X + 10, BASE_Y + 10);
+		engine.playerSpawned(0, TreeCountEngine.packLocation(BASE_X + 49, BASE_Y + 50, 0), 1536, CHOP);
+		engine.playerSpawned(1, TreeCountEngine.packLocation(BASE_X + 52, BASE_Y + 50, 0), 512, CHOP);
+
+		// Two instances mapping the same file stand in for two clients
+		first = new ChopperCountExchange();
+		second = new ChopperCountExchange();
+		first.start(file);
+		second.start(file);
+	}
+
+	@After
+	public void tearDown()
+	{
+		first.stop();
+		second.stop();
+		file.delete();
+	}
+
+	@Test
+	public void peersSeeEachOthersForestryTrees()
+	{
+		first.publish(engine, 1000L, 1, 420);
+		second.publish(new TreeCountEngine(animation -> false), 1000L, 1, 421);
+
+		second.readPeers(1000L);
+		assertEquals(1, second.getPeerCount());
+		assertEquals(420, second.getPeerWorld(0));
+		assertEquals(10822, second.getPeerBestObjectId(0));
+		assertEquals(2, second.getPeerBestCount(0));
+		assertEquals(2, second.getPeerChoppers(0));
+		assertEquals(TreeCountEngine.packLocation(BASE_X + 50, BASE_Y + 50, 0), second.getPeerBestLocation(0));
+
+		first.readPeers(1000L);
+		assertEquals(1, first.getPeerCount());
+		assertEquals(421, first.getPeerWorld(0));
+		assertEquals(0, first.getPeerBestObjectId(0));
+	}
+
+	@Test
+	public void stalePeersAreIgnoredAndTheirSlotsReused()
+	{
+		first.publish(engine, 1000L, 1, 420);
+		second.readPeers(1000L + ChopperCountExchange.STALE_MILLIS + 1);
+		assertEquals(0, second.getPeerCount());
+
+		// Fill every slot with fresh clients, the first one's stale slot included
+		for (int i = 1; i < ChopperCountExchange.SLOTS; i++)
+		{
+			final ChopperCountExchange other = new ChopperCountExchange();
+			other.start(file);
+			other.publish(engine, 10000L, 2, 400 + i);
+		}
+		second.publish(engine, 10000L, 2, 500);
+		second.readPeers(10000L);
+		assertEquals(ChopperCountExchange.SLOTS - 1, second.getPeerCount());
+		for (int peer = 0; peer < second.getPeerCount(); peer++)
+		{
+			assertTrue(second.getPeerWorld(peer) != 420);
+		}
+	}
+
+	@Test
+	public void busiestTreesAreSharedWhenThereAreTooManyToFit()
+	{
+		final TreeCountEngine crowded = new TreeCountEngine(animation -> animation == CHOP);
+		crowded.setSceneBase(BASE_X, BASE_Y);
+		int slot = 0;
+		for (int i = 0; i <= ChopperCountExchange.MAX_ENTRIES; i++)
+		{
+			final int x = BASE_X + 1 + (i % 30) * 3;
+			final int y = BASE_Y + 1 + (i / 30) * 3;
+			crowded.treeSpawned(10822, true, 0, x, y, x, y);
+			crowded.playerSpawned(slot++, TreeCountEngine.packLocation(x, y - 1, 0), 1024, CHOP);
+			if (i == ChopperCountExchange.MAX_ENTRIES)
+			{
+				// The last tree spawned is the busiest, so it only fits if the trees are shared busiest first
+				crowded.playerSpawned(slot++, TreeCountEngine.packLocation(x, y + 1, 0), 0, CHOP);
+			}
+		}
+
+		first.publish(crowded, 1000L, 1, 420);
+		second.readPeers(1000L);
+		assertEquals(1, second.getPeerCount());
+		assertEquals(2, second.getPeerBestCount(0));
+		assertEquals(ChopperCountExchange.MAX_ENTRIES + 1, second.getPeerChoppers(0));
+	}
+
+	@Test
+	public void stoppingReleasesSlot()
+	{
+		first.publish(engine, 1000L, 1, 420);
+		first.stop();
+		second.readPeers(1000L);
+		assertEquals(0, second.getPeerCount());
+	}
+}
@@ -0,0 +1,141 @@
+package treecount;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChopperCountHistoryTest
+{
+	private static final int CHOP = 1;
+	private static final int BASE_X = 3136;
+	private static final int BASE_Y = 3392;
+	private static final int WORLD = 420;
+
+	private File file;
+	private TreeCountEngine engine;
+	private ChopperCountHistory history;
+	private int yew;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		file = File.createTempFile("history", ".bin");
+		engine = new TreeCountEngine(animation -> animation == CHOP);
+		engine.setSceneBase(BASE_X, BASE_Y);
+		yew = engine.treeSpawned(10822, true, 0, BASE_X + 50, BASE_Y + 50, BASE_X + 51, BASE_Y + 51);
+		engine.treeSpawned(10820, false, 0, BASE_X + 10, BASE_Y + 10, BASE_X + 10, BASE_Y + 10);
+		history = new ChopperCountHistory();
+	}
+
+	@After
+	public void tearDown()
+	{
+		history.stop(Runnable::run);
+		file.delete();
+	}
+
+	private void chop(int slot, int sceneX, int sceneY, int orientation)
+	{
+		engine.playerSpawned(slot, TreeCountEngine.packLocation(BASE_X + sceneX, BASE_Y + sceneY, 0), orientation, CHOP);
+	}
+
+	@Test
+	public void recordsOnlyChangedForestryCounts() throws IOException
+	{
+		history.start(file, 16);
+		chop(0, 49, 50, 1536);
+		history.record(engine, 1000L, 1, WORLD);
+		history.record(engine, 1600L, 2, WORLD);
+		chop(1, 52, 50, 512);
+		history.record(engine, 2200L, 3, WORLD);
+
+		final List<ChopperCountHistory.Sample> samples = ChopperCountHistory.read(file);
+		assertEquals(2, samples.size());
+		assertEquals(new ChopperCountHistory.Sample(1000L, 1, BASE_X + 50, BASE_Y + 50, 0, 10822, WORLD, 1), samples.get(0));
+		assertEquals(2, samples.get(1).getCount());
+		assertEquals(Tree.YEW_TREE, samples.get(1).getTree());
+	}
+
+	@Test
+	public void wrapsAroundKeepingNewestRecords() throws IOException
+	{
+		history.start(file, 4);
+		for (int tick = 0; tick < 10; tick++)
+		{
+			// Alternate between one and no choppers so that every tick writes a record
+			if (tick % 2 == 0)
+			{
+				chop(0, 49, 50, 1536);
+			}
+			else
+			{
+				engine.playerDespawned(0);
+			}
+			history.record(engine, tick, tick, WORLD);
+		}
+
+		final List<ChopperCountHistory.Sample> samples = ChopperCountHistory.read(file);
+		assertEquals(4, samples.size());
+		assertEquals(6, samples.get(0).getTick());
+		assertEquals(9, samples.get(3).getTick());
+		assertEquals(0, samples.get(3).getCount());
+		assertEquals(ChopperCountHistory.fileSize(4), file.length());
+	}
+
+	@Test
+	public void skipsRecordsBeingOverwritten() throws IOException
+	{
+		history.start(file, 4);
+		for (int tick = 0; tick < 4; tick++)
+		{
+			if (tick % 2 == 0)
+			{
+				chop(0, 49, 50, 1536);
+			}
+			else
+			{
+				engine.playerDespawned(0);
+			}
+			history.record(engine, tick, tick, WORLD);
+		}
+
+		// Mark the oldest record as the writer does when it wraps around onto it, before publishing the new count
+		final MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+		}
+		mapped.putLong(24, -1);
+
+		final List<ChopperCountHistory.Sample> samples = ChopperCountHistory.read(file);
+		assertEquals(3, samples.size());
+		assertEquals(1, samples.get(0).getTick());
+	}
+
+	@Test
+	public void continuesExistingHistory() throws IOException
+	{
+		history.start(file, 16);
+		chop(0, 49, 50, 1536);
+		history.record(engine, 0L, 0, WORLD);
+		history.stop(Runnable::run);
+
+		history.start(file, 16);
+		engine.playerDespawned(0);
+		engine.treeDespawned(yew);
+		engine.treeSpawned(10822, true, 0, BASE_X + 50, BASE_Y + 50, BASE_X + 51, BASE_Y + 51);
+		chop(1, 52, 50, 512);
+		history.record(engine, 600L, 1, WORLD);
+
+		final List<ChopperCountHistory.Sample> samples = ChopperCountHistory.read(file);
+		assertEquals(2, samples.size());
+		assertEquals(1, samples.get(1).getCount());
+	}
+}
@@ -0,0 +1,54 @@
+package treecount;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ChopperCountStyleTest
+{
+	@Test
+	public void dynamicColorsSaturateAtBusyCount()
+	{
+		final ChopperCountStyle style = new ChopperCountStyle();
+		style.update(true, Color.WHITE);
+
+		assertSame(style.getTextColor(ChopperCountStyle.BUSY_CHOPPERS), style.getTextColor(50));
+		assertNotEquals(style.getTextColor(0), style.getTextColor(ChopperCountStyle.BUSY_CHOPPERS));
+		assertSame(style.getOutlineStroke(ChopperCountStyle.BUSY_CHOPPERS), style.getOutlineStroke(50));
+		assertEquals(0x50, style.getOutlineColor(1).getAlpha());
+		assertEquals(0xB0, style.getOutlineColor(ChopperCountStyle.BUSY_CHOPPERS).getAlpha());
+
+		style.update(false, Color.WHITE);
+		assertSame(Color.WHITE, style.getTextColor(3));
+	}
+
+	@Test
+	public void drawsSpritesUpToMaxCount()
+	{
+		final ChopperCountStyle style = new ChopperCountStyle();
+		style.update(false, Color.WHITE);
+		final BufferedImage canvas = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D graphics = canvas.createGraphics();
+
+		assertTrue(style.drawCount(graphics, 32, 32, 7));
+		assertTrue(style.drawCount(graphics, 32, 32, ChopperCountStyle.MAX_SPRITE_COUNT));
+		assertFalse(style.drawCount(graphics, 32, 32, ChopperCountStyle.MAX_SPRITE_COUNT + 1));
+		graphics.dispose();
+
+		boolean drawn = false;
+		for (int x = 0; x < canvas.getWidth() && !drawn; x++)
+		{
+			for (int y = 0; y < canvas.getHeight() && !drawn; y++)
+			{
+				drawn = canvas.getRGB(x, y) == Color.WHITE.getRGB();
+			}
+		}
+		assertTrue(drawn);
+	}
+}
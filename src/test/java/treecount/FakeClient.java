@@ -0,0 +1,303 @@
+package treecount;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.runelite.api.AnimationID;
+import net.runelite.api.Client;
+import net.runelite.api.GameObject;
+import net.runelite.api.GameState;
+import net.runelite.api.Player;
+import net.runelite.api.Scene;
+import net.runelite.api.Tile;
+import net.runelite.api.events.GameObjectSpawned;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+
+/**
+ * In-memory stand-in for the {@link Client} used to drive {@link TreeCountPlugin} without a running game
+ */
+class FakeClient implements InvocationHandler
+{
+	// Orientations a player has when facing the given direction
+	static final int FACING_SOUTH = 0;
+	static final int FACING_WEST = 512;
+	static final int FACING_NORTH = 1024;
+	static final int FACING_EAST = 1536;
+
+	private final Client proxy;
+	private final Scene scene;
+	private final FakeTile[][][] fakeTiles = new FakeTile[4][104][104];
+	private final Tile[][][] tiles = new Tile[4][104][104];
+
+	int baseX = 3136;
+	int baseY = 3392;
+	int plane;
+	int tickCount;
+	GameState gameState = GameState.LOGGED_IN;
+	final List<Player> players = new ArrayList<>();
+	final Player[] cachedPlayers = new Player[2048];
+	FakePlayer localPlayer;
+
+	FakeClient()
+	{
+		this.proxy = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[]{Client.class}, this);
+		this.scene = (Scene) Proxy.newProxyInstance(Scene.class.getClassLoader(), new Class<?>[]{Scene.class},
+			(sceneProxy, method, args) -> method.getName().equals("getTiles") ? tiles : defaultValue(method.getReturnType()));
+		localPlayer = addPlayer(2047, 1, 1, FACING_SOUTH, AnimationID.IDLE);
+	}
+
+	Client getProxy()
+	{
+		return proxy;
+	}
+
+	FakePlayer addPlayer(int id, int sceneX, int sceneY, int orientation, int animation)
+	{
+		removePlayer(id);
+		FakePlayer player = new FakePlayer(this, id);
+		player.sceneX = sceneX;
+		player.sceneY = sceneY;
+		player.orientation = orientation;
+		player.animation = animation;
+		players.add(player.getProxy());
+		cachedPlayers[id] = player.getProxy();
+		return player;
+	}
+
+	/**
+	 * Places the object on every scene tile it covers, as the client does for objects larger than a tile
+	 */
+	void addObject(FakeGameObject gameObject)
+	{
+		for (int x = gameObject.minX; x <= gameObject.maxX; x++)
+		{
+			for (int y = gameObject.minY; y <= gameObject.maxY; y++)
+			{
+				FakeTile tile = fakeTiles[gameObject.plane][x][y];
+				if (tile == null)
+				{
+					tile = new FakeTile(gameObject.plane, x, y);
+					fakeTiles[gameObject.plane][x][y] = tile;
+					tiles[gameObject.plane][x][y] = tile.getProxy();
+				}
+				tile.gameObjects.add(gameObject.getProxy());
+			}
+		}
+	}
+
+	void removeObject(FakeGameObject gameObject)
+	{
+		for (int x = gameObject.minX; x <= gameObject.maxX; x++)
+		{
+			for (int y = gameObject.minY; y <= gameObject.maxY; y++)
+			{
+				final FakeTile tile = fakeTiles[gameObject.plane][x][y];
+				if (tile != null)
+				{
+					tile.gameObjects.remove(gameObject.getProxy());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Empties the scene, as happens when the client starts loading a new one
+	 */
+	void clearObjects()
+	{
+		for (FakeTile[][] plane : fakeTiles)
+		{
+			for (FakeTile[] column : plane)
+			{
+				for (FakeTile tile : column)
+				{
+					if (tile != null)
+					{
+						tile.gameObjects.clear();
+					}
+				}
+			}
+		}
+	}
+
+	void removePlayer(int id)
+	{
+		final Player player = cachedPlayers[id];
+		if (player != null)
+		{
+			players.remove(player);
+			cachedPlayers[id] = null;
+		}
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args)
+	{
+		switch (method.getName())
+		{
+			case "getBaseX":
+				return baseX;
+			case "getBaseY":
+				return baseY;
+			case "getPlane":
+				return plane;
+			case "getTickCount":
+				return tickCount;
+			case "getGameState":
+				return gameState;
+			case "getPlayers":
+				return players;
+			case "getCachedPlayers":
+				return cachedPlayers;
+			case "getLocalPlayer":
+				return localPlayer.getProxy();
+			case "getScene":
+				return scene;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "FakeClient";
+			default:
+				return defaultValue(method.getReturnType());
+		}
+	}
+
+	/**
+	 * Creates a plugin wired to this client, as if the scene had just finished loading
+	 */
+	TreeCountPlugin createPlugin(TreeCountConfig config) throws ReflectiveOperationException
+	{
+		TreeCountPlugin plugin = new TreeCountPlugin();
+		inject(plugin, "client", proxy);
+		inject(plugin, "config", config);
+		inject(plugin, "settings", new TreeCountSettings(config));
+		inject(plugin, "recorder", new EventRecorder(proxy));
+		inject(plugin, "history", new ChopperCountHistory());
+		inject(plugin, "exchange", new ChopperCountExchange());
+		inject(plugin, "metrics", new TreeCountMetrics());
+
+		GameStateChanged loading = new GameStateChanged();
+		loading.setGameState(GameState.LOADING);
+		plugin.onGameStateChanged(loading);
+		return plugin;
+	}
+
+	static void spawn(TreeCountPlugin plugin, GameObject gameObject)
+	{
+		GameObjectSpawned event = new GameObjectSpawned();
+		event.setGameObject(gameObject);
+		plugin.onGameObjectSpawned(event);
+	}
+
+	static void tick(TreeCountPlugin plugin)
+	{
+		plugin.onGameTick(new GameTick());
+	}
+
+	/**
+	 * Builds a scene of 1x1 trees three tiles apart, with each tree surrounded by up to four choppers facing it
+	 *
+	 * @return the trees that were placed, in the order their choppers were added
+	 */
+	List<FakeGameObject> populateChoppers(int treeId, int chopperCount, int animation)
+	{
+		final List<FakeGameObject> trees = new ArrayList<>();
+		final int treesPerRow = 33;
+		for (int i = 0; i < chopperCount; i++)
+		{
+			final int treeIndex = i / 4;
+			if (treeIndex == trees.size())
+			{
+				final int treeX = 3 * (treeIndex % treesPerRow) + 2;
+				final int treeY = 3 * ((treeIndex / treesPerRow) % treesPerRow) + 2;
+				final FakeGameObject tree = new FakeGameObject(this, treeId, plane, treeX, treeY, 1, 1);
+				addObject(tree);
+				trees.add(tree);
+			}
+
+			final FakeGameObject tree = trees.get(treeIndex);
+			switch (i % 4)
+			{
+				case 0:
+					addPlayer(i, tree.minX, tree.minY - 1, FACING_NORTH, animation);
+					break;
+				case 1:
+					addPlayer(i, tree.minX, tree.minY + 1, FACING_SOUTH, animation);
+					break;
+				case 2:
+					addPlayer(i, tree.minX - 1, tree.minY, FACING_EAST, animation);
+					break;
+				default:
+					addPlayer(i, tree.minX + 1, tree.minY, FACING_WEST, animation);
+					break;
+			}
+		}
+		return trees;
+	}
+
+	/**
+	 * Creates a config that answers every item with the value in the given map, or the type's default otherwise
+	 */
+	static TreeCountConfig config(Map<String, Object> values)
+	{
+		return (TreeCountConfig) Proxy.newProxyInstance(TreeCountConfig.class.getClassLoader(), new Class<?>[]{TreeCountConfig.class},
+			(proxy, method, args) -> values.containsKey(method.getName()) ? values.get(method.getName()) : defaultValue(method.getReturnType()));
+	}
+
+	static TreeCountConfig defaultConfig()
+	{
+		return config(new HashMap<>());
+	}
+
+	static Object defaultValue(Class<?> type)
+	{
+		if (!type.isPrimitive() || type == void.class)
+		{
+			return null;
+		}
+		if (type == boolean.class)
+		{
+			return false;
+		}
+		if (type == long.class)
+		{
+			return 0L;
+		}
+		if (type == float.class)
+		{
+			return 0f;
+		}
+		if (type == double.class)
+		{
+			return 0d;
+		}
+		if (type == char.class)
+		{
+			return '\0';
+		}
+		if (type == byte.class)
+		{
+			return (byte) 0;
+		}
+		if (type == short.class)
+		{
+			return (short) 0;
+		}
+		return 0;
+	}
+
+	static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException
+	{
+		Field field = target.getClass().getDeclaredField(fieldName);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+}
@@ -0,0 +1,74 @@
+package treecount;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import net.runelite.api.GameObject;
+import net.runelite.api.Point;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * In-memory stand-in for a {@link GameObject} occupying a rectangle of scene tiles
+ */
+class FakeGameObject implements InvocationHandler
+{
+	private final FakeClient client;
+	private final GameObject proxy;
+
+	final int id;
+	final int plane;
+	final int minX;
+	final int minY;
+	final int maxX;
+	final int maxY;
+
+	FakeGameObject(FakeClient client, int id, int plane, int minX, int minY, int sizeX, int sizeY)
+	{
+		this.client = client;
+		this.id = id;
+		this.plane = plane;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = minX + sizeX - 1;
+		this.maxY = minY + sizeY - 1;
+		this.proxy = (GameObject) Proxy.newProxyInstance(GameObject.class.getClassLoader(), new Class<?>[]{GameObject.class}, this);
+	}
+
+	GameObject getProxy()
+	{
+		return proxy;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args)
+	{
+		switch (method.getName())
+		{
+			case "getId":
+				return id;
+			case "getPlane":
+				return plane;
+			case "getSceneMinLocation":
+				return new Point(minX, minY);
+			case "getSceneMaxLocation":
+				return new Point(maxX, maxY);
+			case "sizeX":
+				return maxX - minX + 1;
+			case "sizeY":
+				return maxY - minY + 1;
+			case "getLocalLocation":
+				return new LocalPoint(((minX + maxX + 1) << 6), ((minY + maxY + 1) << 6));
+			case "getWorldLocation":
+				return new WorldPoint(client.baseX + minX, client.baseY + minY, plane);
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "FakeGameObject[" + id + " at " + minX + "," + minY + "]";
+			default:
+				return FakeClient.defaultValue(method.getReturnType());
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package treecount;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import net.runelite.api.Player;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * In-memory stand-in for a {@link Player} whose position, orientation and animation can be set directly
+ */
+class FakePlayer implements InvocationHandler
+{
+	private final FakeClient client;
+	private final Player proxy;
+
+	int id;
+	int sceneX;
+	int sceneY;
+	int orientation;
+	int animation = -1;
+
+	FakePlayer(FakeClient client, int id)
+	{
+		this.client = client;
+		this.id = id;
+		this.proxy = (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class}, this);
+	}
+
+	Player getProxy()
+	{
+		return proxy;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args)
+	{
+		switch (method.getName())
+		{
+			case "getId":
+				return id;
+			case "getOrientation":
+				return orientation;
+			case "getAnimation":
+				return animation;
+			case "getCombatLevel":
+				return 3;
+			case "getName":
+				return "Player " + id;
+			case "getLocalLocation":
+				return LocalPoint.fromScene(sceneX, sceneY);
+			case "getWorldLocation":
+				return new WorldPoint(client.baseX + sceneX, client.baseY + sceneY, client.plane);
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "FakePlayer[" + id + "]";
+			default:
+				return FakeClient.defaultValue(method.getReturnType());
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package treecount;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import net.runelite.api.GameObject;
+import net.runelite.api.Point;
+import net.runelite.api.Tile;
+
+/**
+ * In-memory stand-in for a scene {@link Tile} holding the game objects that cover it
+ */
+class FakeTile implements InvocationHandler
+{
+	// The client keeps a fixed number of game object slots per tile, leaving the unused ones null
+	private static final int GAME_OBJECT_SLOTS = 5;
+
+	private final Tile proxy;
+	private final int plane;
+	private final int sceneX;
+	private final int sceneY;
+	final List<GameObject> gameObjects = new ArrayList<>();
+
+	FakeTile(int plane, int sceneX, int sceneY)
+	{
+		this.plane = plane;
+		this.sceneX = sceneX;
+		this.sceneY = sceneY;
+		this.proxy = (Tile) Proxy.newProxyInstance(Tile.class.getClassLoader(), new Class<?>[]{Tile.class}, this);
+	}
+
+	Tile getProxy()
+	{
+		return proxy;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args)
+	{
+		switch (method.getName())
+		{
+			case "getGameObjects":
+				return gameObjects.toArray(new GameObject[Math.max(GAME_OBJECT_SLOTS, gameObjects.size())]);
+			case "getPlane":
+				return plane;
+			case "getSceneLocation":
+				return new Point(sceneX, sceneY);
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "FakeTile[" + sceneX + "," + sceneY + "," + plane + "]";
+			default:
+				return FakeClient.defaultValue(method.getReturnType());
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package treecount;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+	@Test
+	public void bucketsCoverEveryValue()
+	{
+		for (long nanos : new long[]{0, 1, 3, 4, 7, 8, 9, 15, 16, 1000, 999_999, 1L << 40, Long.MAX_VALUE})
+		{
+			final int bucket = LatencyHistogram.bucketOf(nanos);
+			assertTrue(nanos <= LatencyHistogram.upperBoundOf(bucket));
+			assertTrue(bucket == 0 || nanos > LatencyHistogram.upperBoundOf(bucket - 1));
+		}
+	}
+
+	@Test
+	public void percentilesAreWithinBucketPrecision()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++)
+		{
+			histogram.record(i * 1000L);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1_000_000, histogram.getMax());
+		final long p50 = histogram.getPercentile(0.5);
+		final long p99 = histogram.getPercentile(0.99);
+		assertTrue(p50 >= 500_000 && p50 <= 500_000 * 5 / 4);
+		assertTrue(p99 >= 990_000 && p99 <= 1_000_000);
+	}
+
+	@Test
+	public void countsEventsPerTick()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		histogram.record(20);
+		histogram.endTick();
+		assertEquals(2, histogram.getCountLastTick());
+
+		histogram.record(30);
+		histogram.endTick();
+		assertEquals(1, histogram.getCountLastTick());
+		histogram.endTick();
+		assertEquals(0, histogram.getCountLastTick());
+	}
+}
@@ -0,0 +1,44 @@
+package treecount;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RegionFilterTest
+{
+	@Test
+	public void woodcuttingGuildIsIgnoredOnlyWhenEnabled()
+	{
+		final RegionFilter filter = new RegionFilter(true, "", "");
+		assertTrue(filter.isIgnored(6198));
+		assertTrue(filter.isIgnored(6454));
+		// South west and north east tiles of region 6198
+		assertTrue(filter.isIgnored(1536, 3456));
+		assertTrue(filter.isIgnored(1599, 3519));
+		assertFalse(filter.isIgnored(1536, 3520));
+
+		final RegionFilter enabled = new RegionFilter(false, "", "");
+		assertFalse(enabled.isIgnored(6198));
+		assertFalse(enabled.isIgnored(6454));
+	}
+
+	@Test
+	public void trackedRegionsOverrideIgnoredRegions()
+	{
+		final RegionFilter filter = new RegionFilter(true, "6198, 12850", "12850,12851");
+		assertFalse(filter.isIgnored(6198));
+		assertTrue(filter.isIgnored(6454));
+		assertFalse(filter.isIgnored(12850));
+		assertTrue(filter.isIgnored(12851));
+		assertFalse(filter.isIgnored(12852));
+	}
+
+	@Test
+	public void parseRegionsSkipsInvalidEntries()
+	{
+		assertArrayEquals(new int[]{12850, 6198}, RegionFilter.parseRegions(" 12850 ,, abc, -1, 65536, 6198,"));
+		assertArrayEquals(new int[0], RegionFilter.parseRegions(null));
+		assertArrayEquals(new int[0], RegionFilter.parseRegions("  "));
+	}
+}
@@ -0,0 +1,118 @@
+package treecount;
+
+import java.lang.management.ManagementFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that resolving facing and adjacent trees, and the assignments built on them, allocate nothing once warmed up
+ */
+public class TreeCountEngineAllocationTest
+{
+	private static final int CHOP = 1;
+	private static final int BASE_X = 3136;
+	private static final int BASE_Y = 3392;
+	private static final int PLAYERS = 2000;
+	private static final int WARMUP_ROUNDS = 50;
+	private static final int MEASURED_ROUNDS = 10;
+
+	private com.sun.management.ThreadMXBean threadBean;
+	private TreeCountEngine engine;
+	private final int[] locations = new int[PLAYERS];
+	private final int[] adjacentTrees = new int[4];
+	private int sink;
+
+	@Before
+	public void setUp()
+	{
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+
+		engine = new TreeCountEngine(animation -> animation == CHOP);
+		engine.setSceneBase(BASE_X, BASE_Y);
+		for (int i = 0; i < PLAYERS; i++)
+		{
+			// One tree per four players, spread three tiles apart with a player south of each
+			final int treeX = BASE_X + 3 * ((i / 4) % 33) + 2;
+			final int treeY = BASE_Y + 3 * ((i / 4) / 33 % 33) + 2;
+			if (i % 4 == 0)
+			{
+				engine.treeSpawned(10822, true, 0, treeX, treeY, treeX, treeY);
+			}
+			locations[i] = TreeCountEngine.packLocation(treeX, treeY - 1, 0);
+			engine.playerSpawned(i, locations[i], i * 97, TreeCountEngine.IDLE_ANIMATION);
+		}
+	}
+
+	@Test
+	public void findFacingTreeDoesNotAllocate()
+	{
+		assertEquals(0, allocatedBytes(() ->
+		{
+			for (int i = 0; i < PLAYERS; i++)
+			{
+				for (int orientation = 0; orientation < 2048; orientation += 64)
+				{
+					sink += engine.findFacingTree(locations[i], orientation);
+				}
+			}
+		}));
+	}
+
+	@Test
+	public void findAdjacentTreesDoesNotAllocate()
+	{
+		assertEquals(0, allocatedBytes(() ->
+		{
+			for (int i = 0; i < PLAYERS; i++)
+			{
+				sink += engine.findAdjacentTrees(locations[i], false, adjacentTrees);
+				sink += engine.findAdjacentTrees(locations[i], true, adjacentTrees);
+			}
+		}));
+	}
+
+	@Test
+	public void choppingAndTurningDoesNotAllocate()
+	{
+		assertEquals(0, allocatedBytes(() ->
+		{
+			for (int i = 0; i < PLAYERS; i++)
+			{
+				engine.animationChanged(i, CHOP);
+				engine.playerTurned(i, (engine.getPlayerOrientation(i) + 512) & 2047);
+			}
+			for (int i = 0; i < PLAYERS; i++)
+			{
+				engine.animationChanged(i, TreeCountEngine.IDLE_ANIMATION);
+			}
+		}));
+	}
+
+	/**
+	 * Runs the operation until it is compiled, then measures the bytes the current thread allocates while running it again
+	 */
+	private long allocatedBytes(Runnable operation)
+	{
+		for (int i = 0; i < WARMUP_ROUNDS; i++)
+		{
+			operation.run();
+		}
+
+		final long threadId = Thread.currentThread().getId();
+		// Calibrate for anything the measurement itself allocates
+		final long calibrationStart = threadBean.getThreadAllocatedBytes(threadId);
+		final long overhead = threadBean.getThreadAllocatedBytes(threadId) - calibrationStart;
+
+		final long start = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < MEASURED_ROUNDS; i++)
+		{
+			operation.run();
+		}
+		return threadBean.getThreadAllocatedBytes(threadId) - start - overhead;
+	}
+}
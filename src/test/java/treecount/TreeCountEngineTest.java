@@ -0,0 +1,442 @@
+package treecount;
+
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TreeCountEngineTest
+{
+	private static final int CHOP = 1;
+	private static final int OTHER = 2;
+	private static final int BASE_X = 3136;
+	private static final int BASE_Y = 3392;
+	private static final int SOUTH = 0;
+	private static final int WEST = 512;
+	private static final int NORTH = 1024;
+	private static final int EAST = 1536;
+
+	private TreeCountEngine engine;
+	private int yew;
+
+	@Before
+	public void setUp()
+	{
+		engine = new TreeCountEngine(animation -> animation == CHOP);
+		engine.setSceneBase(BASE_X, BASE_Y);
+		// 2x2 yew with its south west corner at scene (50, 50)
+		yew = engine.treeSpawned(10822, true, 0, BASE_X + 50, BASE_Y + 50, BASE_X + 51, BASE_Y + 51);
+	}
+
+	private static int location(int sceneX, int sceneY)
+	{
+		return TreeCountEngine.packLocation(BASE_X + sceneX, BASE_Y + sceneY, 0);
+	}
+
+	@Test
+	public void packLocationRoundTrips()
+	{
+		final int location = TreeCountEngine.packLocation(3245, 3412, 2);
+		assertEquals(3245, TreeCountEngine.locationX(location));
+		assertEquals(3412, TreeCountEngine.locationY(location));
+		assertEquals(2, TreeCountEngine.locationPlane(location));
+	}
+
+	@Test
+	public void nearestDirectionRoundsToClosestCardinal()
+	{
+		assertEquals(0, TreeCountEngine.nearestDirection(SOUTH));
+		assertEquals(1, TreeCountEngine.nearestDirection(WEST));
+		assertEquals(2, TreeCountEngine.nearestDirection(NORTH));
+		assertEquals(3, TreeCountEngine.nearestDirection(EAST));
+		assertEquals(0, TreeCountEngine.nearestDirection(2047));
+		assertEquals(1, TreeCountEngine.nearestDirection(WEST + 255));
+		assertEquals(2, TreeCountEngine.nearestDirection(WEST + 256));
+	}
+
+	@Test
+	public void findTreeCoversFootprint()
+	{
+		assertEquals(yew, engine.findTree(location(50, 50)));
+		assertEquals(yew, engine.findTree(location(51, 51)));
+		assertEquals(TreeCountEngine.NO_TREE, engine.findTree(location(52, 51)));
+		assertEquals(TreeCountEngine.NO_TREE, engine.findTree(TreeCountEngine.packLocation(BASE_X + 50, BASE_Y + 50, 1)));
+	}
+
+	@Test
+	public void woodcuttingPlayersCountTowardsFacedTree()
+	{
+		engine.playerSpawned(0, location(49, 50), EAST, CHOP);
+		engine.playerSpawned(1, location(50, 52), SOUTH, CHOP);
+		engine.playerSpawned(2, location(52, 51), WEST, TreeCountEngine.IDLE_ANIMATION);
+
+		assertEquals(2, engine.getCount(yew));
+		assertEquals(2, engine.getChopperCount());
+
+		engine.animationChanged(2, CHOP);
+		assertEquals(3, engine.getCount(yew));
+
+		engine.animationChanged(0, TreeCountEngine.IDLE_ANIMATION);
+		engine.playerDespawned(1);
+		assertEquals(1, engine.getCount(yew));
+		assertFalse(engine.isPlayerActive(1));
+	}
+
+	@Test
+	public void repeatedAnimationChangesDoNotDoubleCount()
+	{
+		engine.playerSpawned(0, location(49, 50), EAST, CHOP);
+		engine.animationChanged(0, CHOP);
+		engine.animationChanged(0, OTHER);
+		engine.animationChanged(0, CHOP);
+		assertEquals(1, engine.getCount(yew));
+	}
+
+	@Test
+	public void playerUpdatedResolvesOnce()
+	{
+		engine.playerSpawned(0, location(49, 54), SOUTH, TreeCountEngine.IDLE_ANIMATION);
+		engine.playerUpdated(0, location(49, 50), EAST, CHOP);
+		engine.playerUpdated(0, location(49, 50), EAST, CHOP);
+		assertEquals(1, engine.getCount(yew));
+
+		// Another animation keeps the tree unless the player also turned away
+		engine.playerUpdated(0, location(49, 50), EAST, OTHER);
+		assertEquals(yew, engine.getPlayerTree(0));
+		engine.playerUpdated(0, location(49, 50), SOUTH, OTHER);
+		assertEquals(TreeCountEngine.NO_TREE, engine.getPlayerTree(0));
+		assertEquals(0, engine.getCount(yew));
+	}
+
+	@Test
+	public void turningAwayReleasesTree()
+	{
+		engine.playerSpawned(0, location(49, 51), EAST, CHOP);
+		assertEquals(yew, engine.getPlayerTree(0));
+
+		engine.playerMoved(0, location(49, 54));
+		engine.playerTurned(0, EAST);
+		assertEquals(TreeCountEngine.NO_TREE, engine.getPlayerTree(0));
+		assertEquals(0, engine.getCount(yew));
+	}
+
+	@Test
+	public void woodcuttingNextToSingleTreeCountsWithoutFacingIt()
+	{
+		engine.playerSpawned(0, location(49, 50), NORTH, CHOP);
+		assertEquals(yew, engine.getPlayerTree(0));
+
+		// With a second tree next to the player, the tree they are chopping is ambiguous
+		final int oak = engine.treeSpawned(10820, false, 0, BASE_X + 48, BASE_Y + 50, BASE_X + 48, BASE_Y + 50);
+		engine.playerTurned(0, NORTH);
+		assertEquals(TreeCountEngine.NO_TREE, engine.getPlayerTree(0));
+
+		final int[] adjacent = new int[4];
+		assertEquals(2, engine.findAdjacentTrees(location(49, 50), false, adjacent));
+		assertEquals(1, engine.findAdjacentTrees(location(49, 50), true, adjacent));
+		assertEquals(yew, adjacent[0]);
+		assertFalse(engine.isForestryTree(oak));
+	}
+
+	@Test
+	public void despawningTreeReleasesChoppersAndReusesHandle()
+	{
+		engine.playerSpawned(0, location(49, 50), EAST, CHOP);
+		engine.treeDespawned(yew);
+
+		assertFalse(engine.isTree(yew));
+		assertEquals(TreeCountEngine.NO_TREE, engine.getPlayerTree(0));
+		assertEquals(TreeCountEngine.NO_TREE, engine.findTree(location(50, 50)));
+		assertEquals(0, engine.getTreeCount());
+
+		final int stump = engine.treeSpawned(10822, true, 0, BASE_X + 50, BASE_Y + 50, BASE_X + 51, BASE_Y + 51);
+		assertEquals(yew, stump);
+		assertEquals(0, engine.getCount(stump));
+	}
+
+	@Test
+	public void movingSceneBaseKeepsTreesAtTheirWorldLocation()
+	{
+		engine.setSceneBase(BASE_X + 8, BASE_Y - 8);
+		assertEquals(yew, engine.findTree(location(50, 50)));
+		assertTrue(engine.isTree(yew));
+	}
+
+	@Test
+	public void sceneLoadKeepsTreesThatSpawnAgain()
+	{
+		final int oak = engine.treeSpawned(10820, false, 0, BASE_X + 10, BASE_Y + 10, BASE_X + 10, BASE_Y + 10);
+		engine.playerSpawned(0, location(49, 50), EAST, CHOP);
+		engine.sceneLoading();
+		assertFalse(engine.isPlayerActive(0));
+		assertEquals(0, engine.getCount(yew));
+
+		// The scene moves east by a chunk, so the yew is still in it and spawns again while the oak has left
+		engine.setSceneBase(BASE_X + 8, BASE_Y);
+		assertEquals(yew, engine.treeSpawned(10822, true, 0, BASE_X + 50, BASE_Y + 50, BASE_X + 51, BASE_Y + 51));
+		assertEquals(1, engine.sceneLoaded());
+
+		assertTrue(engine.isTree(yew));
+		assertFalse(engine.isTree(oak));
+		assertEquals(1, engine.getTreeCount());
+		assertEquals(yew, engine.findTree(location(50, 50)));
+	}
+
+	@Test
+	public void clearCountsKeepsTreesAndPlayers()
+	{
+		engine.playerSpawned(0, location(49, 50), EAST, CHOP);
+		engine.clearCounts();
+
+		assertEquals(0, engine.getCount(yew));
+		assertEquals(TreeCountEngine.NO_TREE, engine.getPlayerTree(0));
+		assertTrue(engine.isTree(yew));
+		assertTrue(engine.isPlayerActive(0));
+	}
+
+	@Test
+	public void choppersAreIndexedByTree()
+	{
+		engine.playerSpawned(0, location(49, 50), EAST, CHOP);
+		engine.playerSpawned(1, location(52, 51), WEST, CHOP);
+		engine.playerSpawned(2, location(50, 49), NORTH, CHOP);
+		engine.playerDespawned(1);
+
+		int assigned = 0;
+		for (int slot = engine.getFirstChopper(yew); slot != TreeCountEngine.NO_PLAYER; slot = engine.getNextChopper(slot))
+		{
+			assertEquals(yew, engine.getPlayerTree(slot));
+			assigned++;
+		}
+		assertEquals(2, assigned);
+		assertEquals(2, engine.getCount(yew));
+		assertEquals(0, engine.reconcileCounts());
+	}
+
+	@Test
+	public void reconcileRepairsCountsThatDrifted()
+	{
+		final int maple = engine.treeSpawned(10832, true, 0, BASE_X + 30, BASE_Y + 30, BASE_X + 30, BASE_Y + 30);
+		engine.playerSpawned(0, location(50, 49), NORTH, CHOP);
+		engine.playerSpawned(1, location(51, 49), NORTH, CHOP);
+		engine.playerSpawned(2, location(30, 29), NORTH, CHOP);
+		assertEquals(2, engine.getCount(yew));
+
+		// Drop players from the chopper lists without going through unlink, leaving the counts behind
+		engine.treeFirstChopper[yew] = engine.getNextChopper(engine.getFirstChopper(yew));
+		engine.treeFirstChopper[maple] = TreeCountEngine.NO_PLAYER;
+		assertEquals(2, engine.reconcileCounts());
+		assertEquals(1, engine.getCount(yew));
+		assertEquals(0, engine.getCount(maple));
+
+		// The ranking follows the repaired counts
+		final int[] top = new int[2];
+		assertEquals(1, engine.getTopTrees(top));
+		assertEquals(yew, top[0]);
+		assertEquals(1, engine.getHighestCount());
+		assertEquals(0, engine.reconcileCounts());
+	}
+
+	@Test
+	public void countsStayReconciledUnderRandomUpdates()
+	{
+		final Random random = new Random(42);
+		final int oak = engine.treeSpawned(10820, false, 0, BASE_X + 54, BASE_Y + 50, BASE_X + 54, BASE_Y + 50);
+		final int[] orientations = {SOUTH, WEST, NORTH, EAST};
+		for (int tick = 0; tick < 500; tick++)
+		{
+			for (int update = 0; update < 8; update++)
+			{
+				final int slot = random.nextInt(16);
+				final int location = location(48 + random.nextInt(8), 48 + random.nextInt(5));
+				final int orientation = orientations[random.nextInt(4)];
+				final int animation = random.nextInt(3) == 0 ? TreeCountEngine.IDLE_ANIMATION : CHOP;
+				if (random.nextInt(10) == 0)
+				{
+					engine.playerDespawned(slot);
+				}
+				else if (engine.isPlayerActive(slot))
+				{
+					engine.playerUpdated(slot, location, orientation, animation);
+				}
+				else
+				{
+					engine.playerSpawned(slot, location, orientation, animation);
+				}
+			}
+			assertEquals(0, engine.reconcileCounts());
+
+			int yewChoppers = 0;
+			int oakChoppers = 0;
+			for (int slot = 0; slot < 16; slot++)
+			{
+				if (engine.isPlayerActive(slot) && engine.getPlayerTree(slot) == yew)
+				{
+					yewChoppers++;
+				}
+				else if (engine.isPlayerActive(slot) && engine.getPlayerTree(slot) == oak)
+				{
+					oakChoppers++;
+				}
+			}
+			assertEquals(yewChoppers, engine.getCount(yew));
+			assertEquals(oakChoppers, engine.getCount(oak));
+		}
+	}
+
+	@Test
+	public void topTreesAreRankedByCount()
+	{
+		// 1x1 forestry trees in a row along y = 60, every other tile, plus a regular tree that is never ranked
+		final int[] trees = new int[4];
+		for (int i = 0; i < trees.length; i++)
+		{
+			trees[i] = engine.treeSpawned(10820, true, 0, BASE_X + 10 + i * 2, BASE_Y + 60, BASE_X + 10 + i * 2, BASE_Y + 60);
+		}
+		final int regular = engine.treeSpawned(1276, false, 0, BASE_X + 30, BASE_Y + 60, BASE_X + 30, BASE_Y + 60);
+
+		int slot = 0;
+		// Tree i gets i + 1 choppers from the south, the regular tree gets 3
+		for (int i = 0; i < trees.length; i++)
+		{
+			for (int chopper = 0; chopper <= i; chopper++)
+			{
+				engine.playerSpawned(slot++, location(10 + i * 2, 59), NORTH, CHOP);
+			}
+		}
+		for (int chopper = 0; chopper < 3; chopper++)
+		{
+			engine.playerSpawned(slot++, location(30, 59), NORTH, CHOP);
+		}
+		assertEquals(3, engine.getCount(regular));
+
+		final int[] top = new int[3];
+		assertEquals(3, engine.getTopTrees(top));
+		assertEquals(trees[3], top[0]);
+		assertEquals(trees[2], top[1]);
+		assertEquals(trees[1], top[2]);
+
+		// Remove the busiest tree and drop the next one down to a single chopper
+		engine.treeDespawned(trees[3]);
+		engine.playerDespawned(3);
+		engine.playerDespawned(4);
+		final int[] all = new int[8];
+		assertEquals(3, engine.getTopTrees(all));
+		assertEquals(trees[1], all[0]);
+		assertEquals(1, engine.getCount(all[1]));
+		assertEquals(1, engine.getCount(all[2]));
+	}
+
+	@Test
+	public void raisingTheBusiestTreeKeepsItOnTop()
+	{
+		// The next busiest tree stays at a single chopper while the yew climbs away from it
+		final int maple = engine.treeSpawned(10832, true, 0, BASE_X + 30, BASE_Y + 30, BASE_X + 30, BASE_Y + 30);
+		engine.playerSpawned(0, location(30, 29), NORTH, CHOP);
+		final int[] top = new int[2];
+		for (int slot = 1; slot <= 20; slot++)
+		{
+			engine.playerSpawned(slot, location(50, 49), NORTH, CHOP);
+			assertEquals(slot, engine.getCount(yew));
+			assertEquals(Math.max(slot, 1), engine.getHighestCount());
+			assertEquals(2, engine.getTopTrees(top));
+			if (slot > 1)
+			{
+				assertEquals(yew, top[0]);
+				assertEquals(maple, top[1]);
+			}
+		}
+
+		// Dropping back down walks the highest count down with it
+		for (int slot = 20; slot >= 1; slot--)
+		{
+			engine.playerDespawned(slot);
+			assertEquals(Math.max(slot - 1, 1), engine.getHighestCount());
+		}
+		engine.playerDespawned(0);
+		assertEquals(0, engine.getHighestCount());
+		assertEquals(0, engine.getTopTrees(top));
+	}
+
+	@Test
+	public void findTreesInAreaIncludesTreesReachingIntoIt()
+	{
+		final int oak = engine.treeSpawned(10820, false, 0, BASE_X + 20, BASE_Y + 20, BASE_X + 20, BASE_Y + 20);
+		final int[] trees = new int[8];
+
+		// The yew's south west tile is outside the area, but its footprint overlaps it
+		assertEquals(1, engine.findTreesInArea(0, BASE_X + 51, BASE_Y + 51, BASE_X + 60, BASE_Y + 60, trees));
+		assertEquals(yew, trees[0]);
+		assertEquals(2, engine.findTreesInArea(0, BASE_X, BASE_Y, BASE_X + 103, BASE_Y + 103, trees));
+		assertEquals(0, engine.findTreesInArea(1, BASE_X, BASE_Y, BASE_X + 103, BASE_Y + 103, trees));
+
+		engine.treeDespawned(oak);
+		assertEquals(1, engine.findTreesInArea(0, BASE_X, BASE_Y, BASE_X + 103, BASE_Y + 103, trees));
+	}
+
+	@Test
+	public void findNearestTreeMatchesLinearScan()
+	{
+		final Random random = new Random(7);
+		final int[] minX = new int[200];
+		final int[] minY = new int[200];
+		final int[] sizes = new int[200];
+		final int[] handles = new int[200];
+		int treeCount = 0;
+		for (int i = 0; i < minX.length; i++)
+		{
+			final int x = BASE_X + random.nextInt(104);
+			final int y = BASE_Y + random.nextInt(104);
+			final int size = 1 + random.nextInt(3);
+			if (engine.findTree(TreeCountEngine.packLocation(x, y, 0)) == TreeCountEngine.NO_TREE)
+			{
+				minX[treeCount] = x;
+				minY[treeCount] = y;
+				sizes[treeCount] = size;
+				handles[treeCount] = engine.treeSpawned(10820, true, 0, x, y, x + size - 1, y + size - 1);
+				treeCount++;
+			}
+		}
+		// Move the scene so that the index is rebuilt and the trees in the first column of cells fall outside it
+		engine.setSceneBase(BASE_X + 8, BASE_Y);
+
+		for (int query = 0; query < 500; query++)
+		{
+			final int x = BASE_X + 8 + random.nextInt(96);
+			final int y = BASE_Y + random.nextInt(104);
+			final int maxDistance = random.nextInt(40);
+
+			int expectedDistance = Integer.MAX_VALUE;
+			for (int i = 0; i < treeCount; i++)
+			{
+				if (minX[i] < BASE_X + 8 || handles[i] % 2 != 0)
+				{
+					continue;
+				}
+				final int dx = Math.max(Math.max(minX[i] - x, x - (minX[i] + sizes[i] - 1)), 0);
+				final int dy = Math.max(Math.max(minY[i] - y, y - (minY[i] + sizes[i] - 1)), 0);
+				expectedDistance = Math.min(expectedDistance, Math.max(dx, dy));
+			}
+
+			// Only trees with even handles are accepted, to exercise the filter
+			final int nearest = engine.findNearestTree(TreeCountEngine.packLocation(x, y, 0), maxDistance, handle -> handle % 2 == 0 && handle != yew);
+			if (expectedDistance > maxDistance)
+			{
+				assertEquals(TreeCountEngine.NO_TREE, nearest);
+				continue;
+			}
+
+			assertEquals(0, nearest % 2);
+			final int[] trees = new int[64];
+			final int found = engine.findTreesInArea(0, x - expectedDistance, y - expectedDistance, x + expectedDistance, y + expectedDistance, trees);
+			boolean inArea = false;
+			for (int i = 0; i < found; i++)
+			{
+				inArea |= trees[i] == nearest;
+			}
+			assertTrue(inArea);
+		}
+	}
+}
@@ -1,13 +1,321 @@
 package treecount;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import net.runelite.api.AnimationID;
+import net.runelite.api.GameState;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.PlayerDespawned;
 import net.runelite.client.RuneLite;
+import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.externalplugins.ExternalPluginManager;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
 
 public class TreeCountPluginTest
 {
+	private static final int YEW = 10822;
+	// Regions of the local player's tile and of scene tile 80,80 in the fake client's scene
+	private static final int LOCAL_REGION = 12597;
+	private static final int FAR_REGION = 12854;
+
+	private FakeClient client;
+	private TreeCountPlugin plugin;
+	private TreeCountEngine engine;
+
 	public static void main(String[] args) throws Exception
 	{
 		ExternalPluginManager.loadBuiltin(TreeCountPlugin.class);
 		RuneLite.main(args);
 	}
-}
\ No newline at end of file
+
+	@Before
+	public void setUp() throws ReflectiveOperationException
+	{
+		client = new FakeClient();
+		plugin = client.createPlugin(FakeClient.defaultConfig());
+		engine = plugin.getEngine();
+	}
+
+	@After
+	public void tearDown()
+	{
+		TreeDefinitions.set(TreeDefinitions.BUILT_IN);
+	}
+
+	private FakeGameObject addTree(int sceneX, int sceneY, int size)
+	{
+		final FakeGameObject tree = new FakeGameObject(client, YEW, 0, sceneX, sceneY, size, size);
+		client.addObject(tree);
+		return tree;
+	}
+
+	private void animationChanged(FakePlayer player, int animation)
+	{
+		player.animation = animation;
+		final AnimationChanged event = new AnimationChanged();
+		event.setActor(player.getProxy());
+		plugin.onAnimationChanged(event);
+	}
+
+	private int handleOf(FakeGameObject tree)
+	{
+		return engine.findTree(TreeCountEngine.packLocation(client.baseX + tree.minX, client.baseY + tree.minY, tree.plane));
+	}
+
+	@Test
+	public void scanIndexesLargeTreesOnceFromTheirSouthWestTile()
+	{
+		final FakeGameObject large = addTree(20, 20, 2);
+		final FakeGameObject small = addTree(30, 30, 1);
+		// Spawns fired while the scene loads are left to the scan
+		FakeClient.spawn(plugin, large.getProxy());
+		assertEquals(0, engine.getTreeCount());
+
+		FakeClient.tick(plugin);
+		assertEquals(2, engine.getTreeCount());
+		final int handle = handleOf(large);
+		assertTrue(engine.isTree(handle));
+		assertSame(large.getProxy(), plugin.getTreeObject(handle));
+		// Every tile of the footprint resolves to the same tree
+		assertEquals(handle, engine.findTree(TreeCountEngine.packLocation(client.baseX + 21, client.baseY + 21, 0)));
+		assertSame(small.getProxy(), plugin.getTreeObject(handleOf(small)));
+		assertEquals(2, plugin.getSnapshot().getSize());
+	}
+
+	@Test
+	public void sceneLoadKeepsTreesStillInTheSceneAndDropsTheRest()
+	{
+		final FakeGameObject kept = addTree(20, 20, 2);
+		final FakeGameObject dropped = addTree(40, 40, 1);
+		FakeClient.tick(plugin);
+		final int handle = handleOf(kept);
+
+		client.removeObject(dropped);
+		final GameStateChanged loading = new GameStateChanged();
+		loading.setGameState(GameState.LOADING);
+		plugin.onGameStateChanged(loading);
+		FakeClient.tick(plugin);
+
+		assertEquals(1, engine.getTreeCount());
+		assertEquals(handle, handleOf(kept));
+		assertEquals(TreeCountEngine.NO_TREE, handleOf(dropped));
+	}
+
+	@Test
+	public void playerEventsAreResolvedOnceOnTheNextTick() throws ReflectiveOperationException
+	{
+		final TreeCountMetrics metrics = new TreeCountMetrics();
+		metrics.setEnabled(true);
+		FakeClient.inject(plugin, "metrics", metrics);
+		final FakeGameObject tree = addTree(20, 20, 1);
+		final FakePlayer player = client.addPlayer(5, 20, 19, FakeClient.FACING_NORTH, AnimationID.IDLE);
+		FakeClient.tick(plugin);
+		final int handle = handleOf(tree);
+		assertEquals(0, engine.getCount(handle));
+
+		// Flickering between animations within a tick only counts the state the tick ends with
+		animationChanged(player, AnimationID.WOODCUTTING_RUNE);
+		animationChanged(player, AnimationID.IDLE);
+		animationChanged(player, AnimationID.WOODCUTTING_RUNE);
+		assertEquals(0, engine.getCount(handle));
+		assertEquals(TreeCountEngine.NO_TREE, engine.getPlayerTree(5));
+		FakeClient.tick(plugin);
+		assertEquals(1, metrics.getHistogram(TreeCountMetrics.Probe.RESOLVE_PLAYER).getCountLastTick());
+		assertEquals(1, engine.getCount(handle));
+		assertEquals(handle, engine.getPlayerTree(5));
+
+		animationChanged(player, AnimationID.WOODCUTTING_DRAGON);
+		FakeClient.tick(plugin);
+		assertEquals(1, engine.getCount(handle));
+
+		animationChanged(player, AnimationID.IDLE);
+		FakeClient.tick(plugin);
+		assertEquals(0, engine.getCount(handle));
+	}
+
+	@Test
+	public void choppersTurningToAnotherTreeMoveOnTheNextTick()
+	{
+		final FakeGameObject north = addTree(20, 20, 1);
+		final FakeGameObject east = addTree(21, 19, 1);
+		final FakePlayer player = client.addPlayer(5, 20, 19, FakeClient.FACING_NORTH, AnimationID.WOODCUTTING_RUNE);
+		FakeClient.tick(plugin);
+		assertEquals(1, engine.getCount(handleOf(north)));
+
+		// No event fires for turning, choppers' orientation is polled every tick
+		player.orientation = FakeClient.FACING_EAST;
+		FakeClient.tick(plugin);
+		assertEquals(0, engine.getCount(handleOf(north)));
+		assertEquals(1, engine.getCount(handleOf(east)));
+	}
+
+	@Test
+	public void playersDespawningBeforeTheTickAreNotCounted()
+	{
+		final FakeGameObject tree = addTree(20, 20, 1);
+		FakeClient.tick(plugin);
+		final FakePlayer player = client.addPlayer(5, 20, 19, FakeClient.FACING_NORTH, AnimationID.IDLE);
+		animationChanged(player, AnimationID.WOODCUTTING_RUNE);
+
+		final PlayerDespawned despawned = new PlayerDespawned();
+		despawned.setPlayer(player.getProxy());
+		plugin.onPlayerDespawned(despawned);
+		client.removePlayer(5);
+		FakeClient.tick(plugin);
+
+		assertEquals(0, engine.getCount(handleOf(tree)));
+		assertFalse(engine.isPlayerActive(5));
+	}
+
+	@Test
+	public void includingSelfIsAppliedOnTheNextTick() throws ReflectiveOperationException
+	{
+		final Map<String, Object> values = new HashMap<>();
+		plugin = client.createPlugin(FakeClient.config(values));
+		engine = plugin.getEngine();
+		final FakeGameObject tree = addTree(1, 2, 1);
+		client.localPlayer.orientation = FakeClient.FACING_NORTH;
+		client.localPlayer.animation = AnimationID.WOODCUTTING_RUNE;
+		FakeClient.tick(plugin);
+		assertEquals(0, engine.getCount(handleOf(tree)));
+
+		values.put("includeSelf", true);
+		configChanged("includeSelf");
+		assertEquals(0, engine.getCount(handleOf(tree)));
+		FakeClient.tick(plugin);
+		assertEquals(1, engine.getCount(handleOf(tree)));
+
+		// The local player is dropped even if an event queued them before they were excluded
+		animationChanged(client.localPlayer, AnimationID.WOODCUTTING_DRAGON);
+		values.put("includeSelf", false);
+		configChanged("includeSelf");
+		assertEquals(1, engine.getCount(handleOf(tree)));
+		FakeClient.tick(plugin);
+		assertEquals(0, engine.getCount(handleOf(tree)));
+		assertFalse(engine.isPlayerActive(client.localPlayer.getProxy().getId()));
+	}
+
+	@Test
+	public void choppersAreCountedAgainAfterTheirTreeIsReclassified() throws IOException, ReflectiveOperationException
+	{
+		final FakeGameObject tree = addTree(20, 20, 1);
+		client.addPlayer(5, 20, 19, FakeClient.FACING_NORTH, AnimationID.WOODCUTTING_RUNE);
+		FakeClient.tick(plugin);
+		assertTrue(engine.isForestryTree(handleOf(tree)));
+		assertEquals(1, engine.getCount(handleOf(tree)));
+
+		// As the background check does when the local definitions file changed
+		TreeDefinitions.set(TreeDefinitions.BUILT_IN.with(new StringReader("DEAD_TREE " + YEW), "test"));
+		FakeClient.inject(plugin, "definitionsChanged", true);
+		FakeClient.tick(plugin);
+		assertFalse(engine.isForestryTree(handleOf(tree)));
+		assertEquals(1, engine.getCount(handleOf(tree)));
+		assertEquals(handleOf(tree), engine.getPlayerTree(5));
+	}
+
+	@Test
+	public void ignoredRegionsAreNotTrackedAndPrunedWhenTheSettingChanges() throws ReflectiveOperationException
+	{
+		final Map<String, Object> values = new HashMap<>();
+		values.put("ignoredRegions", String.valueOf(FAR_REGION));
+		plugin = client.createPlugin(FakeClient.config(values));
+		engine = plugin.getEngine();
+
+		final FakeGameObject tracked = addTree(20, 20, 1);
+		final FakeGameObject ignored = addTree(80, 80, 1);
+		client.addPlayer(5, 20, 19, FakeClient.FACING_NORTH, AnimationID.WOODCUTTING_RUNE);
+		client.addPlayer(6, 80, 79, FakeClient.FACING_NORTH, AnimationID.WOODCUTTING_RUNE);
+		FakeClient.tick(plugin);
+		assertEquals(1, engine.getTreeCount());
+		assertEquals(1, engine.getCount(handleOf(tracked)));
+		assertEquals(TreeCountEngine.NO_TREE, handleOf(ignored));
+		assertFalse(engine.isPlayerActive(6));
+
+		values.put("ignoredRegions", "");
+		configChanged("ignoredRegions");
+		FakeClient.tick(plugin);
+		assertEquals(2, engine.getTreeCount());
+		assertEquals(1, engine.getCount(handleOf(ignored)));
+		assertEquals(1, engine.getCount(handleOf(tracked)));
+
+		values.put("ignoredRegions", String.valueOf(FAR_REGION));
+		configChanged("ignoredRegions");
+		FakeClient.tick(plugin);
+		assertEquals(1, engine.getTreeCount());
+		assertEquals(TreeCountEngine.NO_TREE, handleOf(ignored));
+		assertFalse(engine.isPlayerActive(6));
+		assertEquals(1, engine.getCount(handleOf(tracked)));
+		assertFalse(plugin.isRegionIgnored());
+
+		values.put("ignoredRegions", String.valueOf(LOCAL_REGION));
+		configChanged("ignoredRegions");
+		FakeClient.tick(plugin);
+		assertTrue(plugin.isRegionIgnored());
+	}
+
+	@Test
+	public void expectedChoppersFollowResolvedPlayersAndTreeChanges() throws ReflectiveOperationException
+	{
+		final Map<String, Object> values = new HashMap<>();
+		values.put("renderExpectedChoppers", true);
+		plugin = client.createPlugin(FakeClient.config(values));
+		engine = plugin.getEngine();
+
+		final FakeGameObject tree = addTree(20, 20, 1);
+		client.addPlayer(5, 20, 19, FakeClient.FACING_NORTH, AnimationID.WOODCUTTING_RUNE);
+		final FakePlayer second = client.addPlayer(6, 21, 20, FakeClient.FACING_WEST, AnimationID.WOODCUTTING_RUNE);
+		FakeClient.tick(plugin);
+		assertEquals(2, expectedChoppers(tree));
+
+		animationChanged(second, AnimationID.IDLE);
+		FakeClient.tick(plugin);
+		assertEquals(1, expectedChoppers(tree));
+
+		// A new tree changes the handles, so the counts are rebuilt from the tracked players
+		final FakeGameObject next = addTree(22, 20, 1);
+		FakeClient.spawn(plugin, next.getProxy());
+		animationChanged(second, AnimationID.WOODCUTTING_RUNE);
+		FakeClient.tick(plugin);
+		assertEquals(2, expectedChoppers(tree));
+		assertEquals(1, expectedChoppers(next));
+
+		final PlayerDespawned despawned = new PlayerDespawned();
+		despawned.setPlayer(second.getProxy());
+		plugin.onPlayerDespawned(despawned);
+		client.removePlayer(6);
+		FakeClient.tick(plugin);
+		assertEquals(1, expectedChoppers(tree));
+		assertEquals(0, expectedChoppers(next));
+	}
+
+	private int expectedChoppers(FakeGameObject tree)
+	{
+		final TreeCountSnapshot snapshot = plugin.getSnapshot();
+		final int handle = handleOf(tree);
+		for (int index = 0; index < snapshot.getSize(); index++)
+		{
+			if (snapshot.getHandle(index) == handle)
+			{
+				return snapshot.getExpectedChoppers(index);
+			}
+		}
+		throw new AssertionError("Tree is not in the snapshot");
+	}
+
+	private void configChanged(String key)
+	{
+		final ConfigChanged event = new ConfigChanged();
+		event.setGroup(TreeCountConfig.GROUP);
+		event.setKey(key);
+		plugin.onConfigChanged(event);
+	}
+}
@@ -0,0 +1,291 @@
+package treecount;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import net.runelite.api.GameState;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.GameObjectDespawned;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.PlayerDespawned;
+import net.runelite.api.events.PlayerSpawned;
+
+/**
+ * Replays a log written by {@link EventRecorder} through {@link TreeCountPlugin} as fast as possible using in-memory
+ * stand-ins for the client, then reports the throughput and the tree counts the plugin ended up with.
+ * <p>
+ * Usage: {@code TreeCountReplay <events.bin> [iterations] [--include-self] [--wc-guild]}
+ */
+public class TreeCountReplay
+{
+	private final FakeClient client = new FakeClient();
+	private final TreeCountPlugin plugin;
+	private final FakePlayer[] players = new FakePlayer[2048];
+	private final Map<Long, FakeGameObject> objects = new HashMap<>();
+	private int events;
+	private int ticks;
+
+	private TreeCountReplay(TreeCountConfig config) throws ReflectiveOperationException
+	{
+		plugin = client.createPlugin(config);
+		// The recording decides who the local player is on its first tick
+		client.removePlayer(client.localPlayer.id);
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: TreeCountReplay <events.bin> [iterations] [--include-self] [--wc-guild]");
+			return;
+		}
+
+		final byte[] log = Files.readAllBytes(Paths.get(args[0]));
+		int iterations = 1;
+		final Map<String, Object> configValues = new HashMap<>();
+		for (int i = 1; i < args.length; i++)
+		{
+			switch (args[i])
+			{
+				case "--include-self":
+					configValues.put("includeSelf", true);
+					break;
+				case "--wc-guild":
+					configValues.put("enableWCGuild", true);
+					break;
+				default:
+					iterations = Integer.parseInt(args[i]);
+					break;
+			}
+		}
+
+		TreeCountReplay replay = null;
+		for (int i = 0; i < iterations; i++)
+		{
+			replay = new TreeCountReplay(FakeClient.config(configValues));
+			final long start = System.nanoTime();
+			replay.run(log);
+			final long elapsed = System.nanoTime() - start;
+			System.out.printf("Iteration %d: %d events, %d ticks in %.2f ms (%.0f events/s, %d ns/tick)%n",
+				i + 1, replay.events, replay.ticks, elapsed / 1e6,
+				replay.events / (elapsed / 1e9), replay.ticks == 0 ? 0 : elapsed / replay.ticks);
+		}
+
+		if (replay != null)
+		{
+			System.out.println("Final tree counts:");
+			final TreeCountEngine engine = replay.plugin.getEngine();
+			for (int handle = 0; handle < engine.getTreeCapacity(); handle++)
+			{
+				if (engine.getCount(handle) > 0)
+				{
+					System.out.println("  " + replay.plugin.getTreeObject(handle) + ": " + engine.getCount(handle));
+				}
+			}
+		}
+	}
+
+	private void run(byte[] log) throws IOException
+	{
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(log));
+		if (in.readInt() != EventRecorder.MAGIC)
+		{
+			throw new IOException("Not a tree count event log");
+		}
+		// Version 1 is the same without the scene trees record, so it replays as a recording started on login
+		final int version = in.readUnsignedByte();
+		if (version < 1 || version > EventRecorder.VERSION)
+		{
+			throw new IOException("Unsupported tree count event log version " + version);
+		}
+
+		while (in.available() > 0)
+		{
+			final int tag = in.readUnsignedByte();
+			switch (tag)
+			{
+				case EventRecorder.SCENE:
+					client.baseX = in.readInt();
+					client.baseY = in.readInt();
+					client.plane = in.readUnsignedByte();
+					break;
+				case EventRecorder.GAME_STATE:
+					gameStateChanged(GameState.values()[in.readUnsignedByte()]);
+					break;
+				case EventRecorder.GAME_TICK:
+					gameTick(in);
+					break;
+				case EventRecorder.OBJECT_SPAWNED:
+				case EventRecorder.OBJECT_DESPAWNED:
+					objectEvent(tag, in);
+					break;
+				case EventRecorder.SCENE_TREES:
+					sceneTrees(in);
+					break;
+				case EventRecorder.PLAYER_SPAWNED:
+					playerSpawned(in);
+					break;
+				case EventRecorder.PLAYER_DESPAWNED:
+					playerDespawned(in.readShort());
+					break;
+				case EventRecorder.ANIMATION_CHANGED:
+					final AnimationChanged animationChanged = new AnimationChanged();
+					animationChanged.setActor(readPlayer(in).getProxy());
+					plugin.onAnimationChanged(animationChanged);
+					break;
+				default:
+					throw new IOException("Unknown record " + tag + " after " + events + " events");
+			}
+			events++;
+		}
+	}
+
+	private void gameStateChanged(GameState gameState)
+	{
+		client.gameState = gameState;
+		if (gameState == GameState.LOADING)
+		{
+			client.clearObjects();
+			objects.clear();
+		}
+		final GameStateChanged event = new GameStateChanged();
+		event.setGameState(gameState);
+		plugin.onGameStateChanged(event);
+	}
+
+	private void gameTick(DataInputStream in) throws IOException
+	{
+		client.tickCount = in.readInt();
+		final int localSlot = in.readShort();
+		final int playerCount = in.readShort();
+		for (int i = 0; i < playerCount; i++)
+		{
+			readPlayer(in);
+		}
+
+		if (localSlot >= 0 && players[localSlot] != null)
+		{
+			client.localPlayer = players[localSlot];
+		}
+
+		FakeClient.tick(plugin);
+		ticks++;
+	}
+
+	private void objectEvent(int tag, DataInputStream in) throws IOException
+	{
+		final FakeGameObject read = readObject(in);
+		final long key = objectKey(read);
+
+		if (tag == EventRecorder.OBJECT_SPAWNED)
+		{
+			objects.put(key, read);
+			client.addObject(read);
+			FakeClient.spawn(plugin, read.getProxy());
+		}
+		else
+		{
+			final FakeGameObject gameObject = objects.remove(key);
+			if (gameObject != null)
+			{
+				client.removeObject(gameObject);
+				final GameObjectDespawned event = new GameObjectDespawned();
+				event.setGameObject(gameObject.getProxy());
+				plugin.onGameObjectDespawned(event);
+			}
+		}
+	}
+
+	/**
+	 * Places the trees that were in the scene when the recording started. The plugin is created as if a scene just
+	 * loaded, so its next tick indexes them with the same scan it uses after a real load
+	 */
+	private void sceneTrees(DataInputStream in) throws IOException
+	{
+		client.clearObjects();
+		objects.clear();
+		final int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++)
+		{
+			final FakeGameObject gameObject = readObject(in);
+			objects.put(objectKey(gameObject), gameObject);
+			client.addObject(gameObject);
+		}
+	}
+
+	private FakeGameObject readObject(DataInputStream in) throws IOException
+	{
+		final int id = in.readInt();
+		final int plane = in.readUnsignedByte();
+		final int minX = in.readUnsignedByte();
+		final int minY = in.readUnsignedByte();
+		final int maxX = in.readUnsignedByte();
+		final int maxY = in.readUnsignedByte();
+		return new FakeGameObject(client, id, plane, minX, minY, maxX - minX + 1, maxY - minY + 1);
+	}
+
+	private static long objectKey(FakeGameObject gameObject)
+	{
+		return ((long) gameObject.id << 24) | (gameObject.plane << 16) | (gameObject.minX << 8) | gameObject.minY;
+	}
+
+	private void playerSpawned(DataInputStream in) throws IOException
+	{
+		final int slot = in.readShort();
+		// A spawn is always a new player object, even if the slot was in use
+		client.removePlayer(slot);
+		players[slot] = null;
+		final FakePlayer player = readPlayerState(in, slot);
+
+		final PlayerSpawned event = new PlayerSpawned();
+		event.setPlayer(player.getProxy());
+		plugin.onPlayerSpawned(event);
+	}
+
+	private void playerDespawned(int slot)
+	{
+		final FakePlayer player = players[slot];
+		if (player == null)
+		{
+			return;
+		}
+
+		final PlayerDespawned event = new PlayerDespawned();
+		event.setPlayer(player.getProxy());
+		plugin.onPlayerDespawned(event);
+		client.removePlayer(slot);
+		players[slot] = null;
+	}
+
+	private FakePlayer readPlayer(DataInputStream in) throws IOException
+	{
+		return readPlayerState(in, in.readShort());
+	}
+
+	private FakePlayer readPlayerState(DataInputStream in, int slot) throws IOException
+	{
+		final int sceneX = in.readUnsignedByte();
+		final int sceneY = in.readUnsignedByte();
+		final int orientation = in.readShort();
+		final int animation = in.readShort();
+
+		FakePlayer player = players[slot];
+		if (player == null)
+		{
+			player = client.addPlayer(slot, sceneX, sceneY, orientation, animation);
+			players[slot] = player;
+		}
+		else
+		{
+			player.sceneX = sceneX;
+			player.sceneY = sceneY;
+			player.orientation = orientation;
+			player.animation = animation;
+		}
+		return player;
+	}
+}
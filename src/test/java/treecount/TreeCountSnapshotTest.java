@@ -0,0 +1,107 @@
+package treecount;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.runelite.api.GameObject;
+import net.runelite.api.coords.WorldPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TreeCountSnapshotTest
+{
+	private static final int CHOP = 1;
+	private static final int BASE_X = 3136;
+	private static final int BASE_Y = 3392;
+
+	private final FakeClient client = new FakeClient();
+	private final GameObject[] treeObjects = new GameObject[16];
+	private final Map<GameObject, List<WorldPoint>> treeTileMap = new HashMap<>();
+	private TreeCountEngine engine;
+	private int yew;
+	private int oak;
+
+	@Before
+	public void setUp()
+	{
+		engine = new TreeCountEngine(animation -> animation == CHOP);
+		engine.setSceneBase(BASE_X, BASE_Y);
+		yew = engine.treeSpawned(10822, true, 0, BASE_X + 50, BASE_Y + 50, BASE_X + 51, BASE_Y + 51);
+		oak = engine.treeSpawned(10820, false, 0, BASE_X + 10, BASE_Y + 10, BASE_X + 10, BASE_Y + 10);
+		treeObjects[yew] = new FakeGameObject(client, 10822, 0, 50, 50, 2, 2).getProxy();
+		treeObjects[oak] = new FakeGameObject(client, 10820, 0, 10, 10, 1, 1).getProxy();
+		treeTileMap.put(treeObjects[oak], Collections.singletonList(new WorldPoint(BASE_X + 10, BASE_Y + 10, 0)));
+		engine.playerSpawned(0, TreeCountEngine.packLocation(BASE_X + 49, BASE_Y + 50, 0), 1536, CHOP);
+	}
+
+	@Test
+	public void captureIsUnaffectedByLaterChanges()
+	{
+		final TreeCountSnapshot snapshot = new TreeCountSnapshot();
+		snapshot.capture(engine, treeObjects, treeTileMap, null, 7, null, 0);
+		engine.playerDespawned(0);
+		engine.treeDespawned(yew);
+		treeObjects[yew] = null;
+
+		assertEquals(7, snapshot.getVersion());
+		assertEquals(2, snapshot.getSize());
+		assertEquals(yew, snapshot.getHandle(0));
+		assertEquals(1, snapshot.getCount(0));
+		assertEquals(10822, snapshot.getObjectId(0));
+		assertTrue(snapshot.isForestryTree(0));
+		assertEquals(TreeCountEngine.packLocation(BASE_X + 50, BASE_Y + 50, 0), snapshot.getLocation(0));
+		assertNull(snapshot.getTiles(0));
+		assertFalse(snapshot.isForestryTree(1));
+		assertSame(treeTileMap.get(snapshot.getObject(1)), snapshot.getTiles(1));
+	}
+
+	@Test
+	public void skipsTreesWithoutObjects()
+	{
+		treeObjects[yew] = null;
+		final int[] expectedChoppers = new int[16];
+		expectedChoppers[oak] = 3;
+
+		final TreeCountSnapshot snapshot = new TreeCountSnapshot();
+		snapshot.capture(engine, treeObjects, treeTileMap, expectedChoppers, 0, null, 0);
+		assertEquals(1, snapshot.getSize());
+		assertEquals(oak, snapshot.getHandle(0));
+		assertEquals(3, snapshot.getExpectedChoppers(0));
+	}
+
+	@Test
+	public void ranksBusiestForestryTrees()
+	{
+		engine.playerSpawned(1, TreeCountEngine.packLocation(BASE_X + 10, BASE_Y + 9, 0), 1024, CHOP);
+
+		final TreeCountSnapshot snapshot = new TreeCountSnapshot();
+		snapshot.capture(engine, treeObjects, treeTileMap, null, 0, null, 5);
+		assertEquals(1, snapshot.getTopSize());
+		assertEquals(yew, snapshot.getHandle(snapshot.getTopTree(0)));
+	}
+
+	@Test
+	public void refillingReusesTheSnapshotForTheCurrentTrees()
+	{
+		final TreeCountSnapshot snapshot = new TreeCountSnapshot();
+		snapshot.capture(engine, treeObjects, treeTileMap, null, 1, null, 5);
+		assertEquals(2, snapshot.getSize());
+
+		engine.playerDespawned(0);
+		engine.treeDespawned(yew);
+		treeObjects[yew] = null;
+		snapshot.capture(engine, treeObjects, treeTileMap, null, 2, null, 5);
+		assertEquals(2, snapshot.getVersion());
+		assertEquals(1, snapshot.getSize());
+		assertEquals(oak, snapshot.getHandle(0));
+		assertEquals(0, snapshot.getTopSize());
+		// The slot of the despawned tree no longer holds on to its object
+		assertNull(snapshot.getObject(1));
+	}
+}
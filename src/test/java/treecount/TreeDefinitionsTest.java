@@ -0,0 +1,91 @@
+package treecount;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import net.runelite.api.AnimationID;
+import net.runelite.api.ObjectID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TreeDefinitionsTest
+{
+	@Test
+	public void builtInCoversEveryTreeAndAnimation()
+	{
+		final TreeDefinitions definitions = TreeDefinitions.BUILT_IN;
+		for (Tree tree : Tree.values())
+		{
+			for (int treeId : tree.getTreeIds())
+			{
+				assertEquals(tree, definitions.findTree(treeId));
+			}
+		}
+		assertNull(definitions.findTree(-1));
+		assertNull(definitions.findTree(Integer.MAX_VALUE));
+		assertTrue(definitions.isWoodcuttingAnimation(AnimationID.WOODCUTTING_RUNE));
+		assertTrue(definitions.isWoodcuttingAnimation(AnimationID.WOODCUTTING_2H_3A));
+		assertFalse(definitions.isWoodcuttingAnimation(AnimationID.IDLE));
+		assertFalse(definitions.isWoodcuttingAnimation(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void definitionsApplyOnTopOfBuiltIn() throws IOException
+	{
+		final TreeDefinitions definitions = TreeDefinitions.BUILT_IN.with(new StringReader(
+			"# New variants\n"
+				+ "YEW_TREE 900001 900002 # trailing comment\n"
+				+ "NONE " + ObjectID.YEW_TREE_10822 + "\n"
+				+ "ANIMATION 12000\n"
+				+ "NOT_ANIMATION " + AnimationID.WOODCUTTING_BRONZE + "\n"), "test");
+
+		assertEquals(Tree.YEW_TREE, definitions.findTree(900001));
+		assertEquals(Tree.YEW_TREE, definitions.findTree(900002));
+		assertNull(definitions.findTree(ObjectID.YEW_TREE_10822));
+		assertEquals(Tree.OAK_TREE, definitions.findTree(ObjectID.OAK_TREE_9734));
+		assertTrue(definitions.isWoodcuttingAnimation(12000));
+		assertFalse(definitions.isWoodcuttingAnimation(AnimationID.WOODCUTTING_BRONZE));
+		assertTrue(definitions.isWoodcuttingAnimation(AnimationID.WOODCUTTING_RUNE));
+
+		// Compiling never modifies the definitions it started from
+		assertEquals(Tree.YEW_TREE, TreeDefinitions.BUILT_IN.findTree(ObjectID.YEW_TREE_10822));
+		assertNull(TreeDefinitions.BUILT_IN.findTree(900001));
+	}
+
+	@Test
+	public void invalidEntriesAreSkipped() throws IOException
+	{
+		final TreeDefinitions definitions = TreeDefinitions.BUILT_IN.with(new StringReader(
+			"UNKNOWN_TREE 900001\n"
+				+ "MAGIC_TREE abc -5 99999999 900002\n"
+				+ "\n"
+				+ "   \n"), "test");
+
+		assertNull(definitions.findTree(900001));
+		assertEquals(Tree.MAGIC_TREE, definitions.findTree(900002));
+	}
+
+	@Test
+	public void loadAppliesOverrideFileWhenPresent() throws IOException
+	{
+		final File file = File.createTempFile("trees", ".txt");
+		try
+		{
+			Files.write(file.toPath(), "REDWOOD_TREE 900003\n".getBytes(StandardCharsets.UTF_8));
+			final TreeDefinitions definitions = TreeDefinitions.load(file);
+			assertEquals(Tree.REDWOOD_TREE, definitions.findTree(900003));
+			assertEquals(Tree.YEW_TREE, definitions.findTree(ObjectID.YEW_TREE_10822));
+
+			assertNull(TreeDefinitions.load(new File(file.getParentFile(), "missing-trees.txt")).findTree(900003));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+}